@@ -2,8 +2,8 @@ package client;
 
 import chess.ChessGame;
 import chess.ChessMove;
-import com.google.gson.Gson;
 import model.GameData;
+import webSocketMessages.WebSocketJson;
 import webSocketMessages.serverMessages.ServerMessage;
 import webSocketMessages.userCommands.*;
 
@@ -60,7 +60,7 @@ public class ServerFacade {
 
     public void connectWS() {
         try {
-            ws = new WebsocketCommunicator(serverDomain);
+            ws = new WebsocketCommunicator(this, serverDomain);
         }
         catch (Exception e) {
             System.out.println("Failed to make connection with server");
@@ -68,16 +68,15 @@ public class ServerFacade {
     }
 
     public void sendCommand(UserGameCommand command) {
-        String message = new Gson().toJson(command);
-        ws.sendMessage(message);
+        ws.sendMessage(WebSocketJson.write(command));
     }
 
     public void joinPlayer(int gameID, ChessGame.TeamColor color) {
-        sendCommand(new JoinPlayer(authToken, gameID, color));
+        sendCommand(new JoinPlayer(authToken, gameID, color, true));
     }
 
     public void joinObserver(int gameID) {
-        sendCommand(new JoinObserver(authToken, gameID));
+        sendCommand(new JoinObserver(authToken, gameID, true));
     }
 
     public void makeMove(int gameID, ChessMove move) {
@@ -92,4 +91,8 @@ public class ServerFacade {
         sendCommand(new Resign(authToken, gameID));
     }
 
+    public void resync(int gameID) {
+        sendCommand(new Resync(authToken, gameID));
+    }
+
 }
\ No newline at end of file
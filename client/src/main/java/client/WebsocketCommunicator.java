@@ -1,11 +1,13 @@
 package client;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.InvalidMoveException;
 import ui.BoardPrinter;
 import ui.GameplayREPL;
+import webSocketMessages.WebSocketJson;
 import webSocketMessages.serverMessages.Error;
 import webSocketMessages.serverMessages.LoadGame;
+import webSocketMessages.serverMessages.MoveMade;
 import webSocketMessages.serverMessages.Notification;
 import webSocketMessages.serverMessages.ServerMessage;
 
@@ -21,8 +23,10 @@ import static ui.EscapeSequences.moveCursorToLocation;
 public class WebsocketCommunicator extends Endpoint {
 
     Session session;
+    ServerFacade facade;
 
-    public WebsocketCommunicator(String serverDomain) throws Exception {
+    public WebsocketCommunicator(ServerFacade facade, String serverDomain) throws Exception {
+        this.facade = facade;
         try {
             URI uri = new URI("ws://" + serverDomain + "/connect");
 
@@ -48,18 +52,40 @@ public class WebsocketCommunicator extends Endpoint {
     }
 
     private void handleMessage(String message) {
-        if (message.contains("\"serverMessageType\":\"NOTIFICATION\"")) {
-            Notification notif = new Gson().fromJson(message, Notification.class);
-            printNotification(notif.getMessage());
+        switch (WebSocketJson.readServerMessage(message)) {
+            case Notification notif -> printNotification(notif.getMessage());
+            case Error error -> printNotification(error.getMessage());
+            case LoadGame loadGame -> printLoadedGame(loadGame.getGame());
+            case MoveMade moveMade -> applyMove(moveMade);
+            default -> {}
         }
-        else if (message.contains("\"serverMessageType\":\"ERROR\"")) {
-            Error error = new Gson().fromJson(message, Error.class);
-            printNotification(error.getMessage());
+    }
+
+    /*
+     * Plays the move on a copy of our game, so the board being shown is never half updated, and only
+     * shows the copy once it has reached the server's position; otherwise fetches the whole game.
+     */
+    private void applyMove(MoveMade moveMade) {
+        ChessGame game = GameplayREPL.boardPrinter == null ? null : GameplayREPL.boardPrinter.copyGame();
+        if (game == null) {
+            // The move arrived before any LOAD_GAME, so there is nothing to apply it to yet
+            facade.resync(moveMade.getGameID());
+            return;
+        }
+        try {
+            game.makeMove(moveMade.getMove());
+        } catch (InvalidMoveException e) {
+            facade.resync(moveMade.getGameID());
+            return;
+        }
+        if (game.getPositionHash() != moveMade.getPositionHash()) {
+            facade.resync(moveMade.getGameID());
+            return;
         }
-        else if (message.contains("\"serverMessageType\":\"LOAD_GAME\"")) {
-            LoadGame loadGame = new Gson().fromJson(message, LoadGame.class);
-            printLoadedGame(loadGame.getGame());
+        if (moveMade.getStatus() == MoveMade.Status.CHECKMATE || moveMade.getStatus() == MoveMade.Status.STALEMATE) {
+            game.setGameOver(true);
         }
+        printLoadedGame(game);
     }
 
     private void printNotification(String message) {
@@ -17,16 +17,28 @@ public class BoardPrinter {
         this.game = game;
     }
 
-    public void updateGame(ChessGame game) {
+    /*
+     * The WebSocket thread swaps in new games while the REPL thread prints, and validMoves tries
+     * moves on the board in place, so every use of the game holds this printer's lock.
+     */
+    public synchronized void updateGame(ChessGame game) {
         this.game = game;
     }
 
+    /**
+     * @return a copy of the game shown, safe to change while the printer keeps using the original;
+     * null if there is no game yet
+     */
+    public synchronized ChessGame copyGame() {
+        return game != null ? new ChessGame(game) : null;
+    }
+
     /**
      *
      * @param color team color to print as, if null, prints both.
      * @param selectedPos a piece to highlight all legal moves, if null, a plain board is printed
      */
-    public void printBoard(ChessGame.TeamColor color, ChessPosition selectedPos) {
+    public synchronized void printBoard(ChessGame.TeamColor color, ChessPosition selectedPos) {
         StringBuilder output = new StringBuilder();
         output.append(SET_TEXT_BOLD);
 
@@ -0,0 +1,70 @@
+package benchmark;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The engine calls the server makes for every MAKE_MOVE: validating a move,
+ * applying it, and the checkmate test that follows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChessGameBenchmark {
+
+    static final String MIDDLEGAME = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+    static final String FOOLS_MATE = "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3";
+
+    private ChessGame middlegame;
+    private ChessGame checkmate;
+    private ChessGame scratch;
+    private ChessMove move;
+
+    @Setup
+    public void setup() {
+        middlegame = Fen.parse(MIDDLEGAME);
+        checkmate = Fen.parse(FOOLS_MATE);
+        scratch = new ChessGame();
+        // Bishop g5 takes the knight on f6
+        move = new ChessMove(new ChessPosition(5, 7), new ChessPosition(6, 6), null);
+    }
+
+    // Every valid move of the side to move, as the client does for highlighting each piece
+    @Benchmark
+    public void validMovesAllPieces(Blackhole blackhole) {
+        for (int row = 1; row < 9; row++) {
+            for (int col = 1; col < 9; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = middlegame.getBoard().getPiece(position);
+                if (piece != null && piece.getTeamColor() == middlegame.getTeamTurn()) {
+                    blackhole.consume(middlegame.validMoves(position));
+                }
+            }
+        }
+    }
+
+    // Includes resetting a scratch game to the position, since makeMove changes it
+    @Benchmark
+    public ChessGame makeMove() throws InvalidMoveException {
+        scratch.setBoard(middlegame.getBoard());
+        scratch.setTeamTurn(middlegame.getTeamTurn());
+        scratch.makeMove(move);
+        return scratch;
+    }
+
+    @Benchmark
+    public boolean isInCheckmateMated() {
+        return checkmate.isInCheckmate(ChessGame.TeamColor.WHITE);
+    }
+
+    @Benchmark
+    public boolean isInCheckmateNotMated() {
+        return middlegame.isInCheckmate(ChessGame.TeamColor.WHITE);
+    }
+}
@@ -0,0 +1,59 @@
+package benchmark;
+
+import chess.ChessGame;
+import dataAccess.DataAccessException;
+import dataAccess.MemoryAuthDAO;
+import dataAccess.MemoryGameDAO;
+import model.AuthData;
+import model.GameData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups against the in-memory DAOs as the number of stored records grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemoryDAOBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int records;
+
+    private MemoryAuthDAO authDAO;
+    private MemoryGameDAO gameDAO;
+    private String lastToken;
+    private int lastGameID;
+
+    @Setup
+    public void setup() {
+        authDAO = new MemoryAuthDAO();
+        gameDAO = new MemoryGameDAO();
+        for (int i = 1; i <= records; i++) {
+            lastToken = UUID.randomUUID().toString();
+            authDAO.addAuth(new AuthData("user" + i, lastToken));
+            gameDAO.createGame(new GameData(i, "white" + i, "black" + i, "game" + i, new ChessGame()));
+        }
+        lastGameID = records;
+    }
+
+    @Benchmark
+    public AuthData getAuth() throws DataAccessException {
+        return authDAO.getAuth(lastToken);
+    }
+
+    @Benchmark
+    public GameData getGame() throws DataAccessException {
+        return gameDAO.getGame(lastGameID);
+    }
+
+    @Benchmark
+    public boolean gameExists() {
+        return gameDAO.gameExists(lastGameID);
+    }
+}
@@ -0,0 +1,63 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.Fen;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of a ChessGame through Gson, the way SQLGameDAO used to store games
+ * (a new Gson for every call), and through ChessGameCodec, the way it stores them now.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ChessGame game;
+    private String json;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        game = Fen.parse(ChessGameBenchmark.MIDDLEGAME);
+        json = new Gson().toJson(game);
+        encoded = ChessGameCodec.encode(game);
+    }
+
+    @Benchmark
+    public String serializeGame() {
+        return new Gson().toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame deserializeGame() {
+        return new Gson().fromJson(json, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame roundTrip() {
+        return new Gson().fromJson(new Gson().toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public byte[] encodeGame() {
+        return ChessGameCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame decodeGame() {
+        return ChessGameCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public ChessGame codecRoundTrip() {
+        return ChessGameCodec.decode(ChessGameCodec.encode(game));
+    }
+}
@@ -0,0 +1,110 @@
+package server;
+
+import chess.ChessGame;
+import chess.Fen;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.openjdk.jmh.annotations.*;
+import webSocketMessages.serverMessages.LoadGame;
+import webSocketMessages.serverMessages.Notification;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out cost of WebsocketHandler.broadcastMessage for one game, with sessions
+ * that discard what is sent to them. Lives in the server package to reach
+ * Server's session table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    private static final int GAME_ID = 1;
+
+    // Sessions watching the game being broadcast to
+    @Param({"2", "50", "500"})
+    public int watchers;
+
+    // Sessions connected to other games, which a broadcast should not have to touch
+    @Param({"0", "1000"})
+    public int otherSessions;
+
+    private final WebsocketHandler handler = new WebsocketHandler();
+    private Session mover;
+    private LoadGame loadGame;
+    private Notification notification;
+
+    public long bytesSent;
+
+    @Setup
+    public void setup() {
+        Server.gameSessions.clear();
+        for (int i = 0; i < watchers; i++) {
+            Session session = discardingSession();
+            Server.gameSessions.join(session, GAME_ID, false);
+            mover = session;
+        }
+        for (int i = 0; i < otherSessions; i++) {
+            Server.gameSessions.join(discardingSession(), GAME_ID + 1 + i, false);
+        }
+        ChessGame game = Fen.parse(Fen.STARTING_POSITION);
+        loadGame = new LoadGame(game);
+        notification = new Notification("A move has been made by benchmark");
+    }
+
+    @TearDown
+    public void tearDown() {
+        Server.gameSessions.clear();
+    }
+
+    @Benchmark
+    public void broadcastLoadGame() throws IOException {
+        handler.broadcastMessage(mover, loadGame, true);
+    }
+
+    @Benchmark
+    public void broadcastNotification() throws IOException {
+        handler.broadcastMessage(mover, notification);
+    }
+
+    private Session discardingSession() {
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendString")) {
+                        bytesSent += ((String) args[0]).length();
+                        // Completes asynchronous sends straight away, as a client that keeps up would
+                        if (args.length == 2 && args[1] instanceof WriteCallback callback) {
+                            callback.writeSuccess();
+                        }
+                    }
+                    return identityMethod(proxy, method.getName(), args);
+                });
+        return (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getRemote")) {
+                        return remote;
+                    }
+                    if (method.getName().equals("isOpen")) {
+                        return true;
+                    }
+                    return identityMethod(proxy, method.getName(), args);
+                });
+    }
+
+    // Sessions are used as map keys, so the proxies need identity equals and hashCode
+    private static Object identityMethod(Object proxy, String name, Object[] args) {
+        return switch (name) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "toString" -> "DiscardingSession@" + Integer.toHexString(System.identityHashCode(proxy));
+            default -> null;
+        };
+    }
+}
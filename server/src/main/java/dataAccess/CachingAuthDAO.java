@@ -0,0 +1,139 @@
+package dataAccess;
+
+import model.AuthData;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers auth tokens looked up in another AuthDAO for a while, so repeat requests
+ * with the same token do not go to the database.
+ * <p>
+ * Tokens are cached when they are added and when they are first looked up. A deleted
+ * token is replaced by a marker that lasts as long as an entry would, so a lookup that
+ * read the token from the database just before the delete can not cache it again. A
+ * token deleted through a different server instance is only noticed here once its entry
+ * expires, which is why entries do expire. Tokens that do not exist are never cached.
+ * <p>
+ * Once the cache is full, expired entries are swept out and, if that is not enough, a
+ * tenth of the entries are dropped, so the cost of a sweep is spread over many inserts.
+ */
+public class CachingAuthDAO implements AuthDAO {
+
+    private static final int DEFAULT_TTL_SECONDS = 300;
+    private static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    // auth is null for a token that has been deleted
+    private record Entry(AuthData auth, long expiresAt) {}
+
+    private final AuthDAO stored;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public record Stats(long hits, long misses, double hitRate, int size, long evictions) {}
+
+    public CachingAuthDAO(AuthDAO stored) {
+        this(stored, DatabaseManager.getIntProperty("auth.cacheTtlSeconds", DEFAULT_TTL_SECONDS),
+                DatabaseManager.getIntProperty("auth.cacheMaxEntries", DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * @param stored     DAO that holds the tokens
+     * @param ttlSeconds how long a cached token is trusted before it is looked up again
+     * @param maxEntries most tokens to cache before some are evicted
+     */
+    public CachingAuthDAO(AuthDAO stored, int ttlSeconds, int maxEntries) {
+        this.stored = stored;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public void addAuth(AuthData authData) {
+        stored.addAuth(authData);
+        cache(authData);
+    }
+
+    @Override
+    public void deleteAuth(String authToken) {
+        // No token is stored under null, and the cache can not hold a marker for it
+        if (authToken == null) {
+            return;
+        }
+        stored.deleteAuth(authToken);
+        cache.put(authToken, new Entry(null, System.nanoTime() + ttlNanos));
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        // A request without an authorization header
+        if (authToken == null) {
+            throw new DataAccessException("Auth Token does not exist: null");
+        }
+        Entry entry = cache.get(authToken);
+        if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+            hits.incrementAndGet();
+            if (entry.auth() == null) {
+                throw new DataAccessException("Auth Token does not exist: " + authToken);
+            }
+            return entry.auth();
+        }
+        misses.incrementAndGet();
+        AuthData auth = stored.getAuth(authToken);
+        cache(auth);
+        return auth;
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+        stored.clear();
+    }
+
+    public Stats stats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return new Stats(hitCount, total - hitCount, total == 0 ? 0 : (double) hitCount / total, cache.size(),
+                evictions.get());
+    }
+
+    private void cache(AuthData auth) {
+        long now = System.nanoTime();
+        if (cache.size() >= maxEntries) {
+            evict(now);
+        }
+        // A live deletion marker wins, since the token it stands for is gone from the database
+        cache.compute(auth.authToken(), (token, existing) ->
+                existing != null && existing.auth() == null && existing.expiresAt() - now > 0
+                        ? existing : new Entry(auth, now + ttlNanos));
+    }
+
+    // One thread sweeps at a time; the rest carry on, briefly letting the cache run over its limit
+    private void evict(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int target = maxEntries - Math.max(1, maxEntries / 10);
+            int before = cache.size();
+            cache.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+            Iterator<Entry> entries = cache.values().iterator();
+            while (cache.size() > target && entries.hasNext()) {
+                entries.next();
+                entries.remove();
+            }
+            evictions.addAndGet(Math.max(0, before - cache.size()));
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package dataAccess;
+
+/**
+ * Indicates the game was changed by someone else since it was read
+ */
+public class ConcurrentUpdateException extends DataAccessException {
+    public ConcurrentUpdateException(int gameID, int version) {
+        super("Game %d is no longer at version %d".formatted(gameID, version));
+    }
+}
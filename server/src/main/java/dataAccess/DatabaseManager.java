@@ -1,5 +1,9 @@
 package dataAccess;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
 import java.sql.*;
 import java.util.Properties;
 
@@ -8,23 +12,39 @@ public class DatabaseManager {
     private static final String user;
     private static final String password;
     private static final String connectionUrl;
+    private static final boolean embedded;
+    private static final Properties props = new Properties();
+
+    private static HikariDataSource pool;
+
+    public record PoolStats(int active, int idle, int total, int waiting, int maxSize) {}
 
     /*
      * Load the database information for the db.properties file.
+     * Setting db.url (e.g. jdbc:h2:mem:chess;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1)
+     * connects to that database as is instead of the MySQL server given by db.host and db.port,
+     * which lets tests run against a local embedded database.
      */
     static {
         try {
             try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
                 if (propStream == null) throw new Exception("Unable to load db.properties");
-                Properties props = new Properties();
                 props.load(propStream);
                 databaseName = props.getProperty("db.name");
                 user = props.getProperty("db.user");
                 password = props.getProperty("db.password");
 
-                var host = props.getProperty("db.host");
-                var port = Integer.parseInt(props.getProperty("db.port"));
-                connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+                var url = props.getProperty("db.url");
+                if (url != null) {
+                    connectionUrl = url;
+                    embedded = url.startsWith("jdbc:h2:");
+                }
+                else {
+                    var host = props.getProperty("db.host");
+                    var port = Integer.parseInt(props.getProperty("db.port"));
+                    connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+                    embedded = false;
+                }
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
@@ -32,12 +52,37 @@ public class DatabaseManager {
     }
 
     /**
-     * Creates the database if it does not already exist.
+     * Reads an optional integer setting from db.properties.
+     *
+     * @param name         property name
+     * @param defaultValue value to use when db.properties does not set it
+     */
+    public static int getIntProperty(String name, int defaultValue) {
+        var value = props.getProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Reads an optional setting from db.properties.
+     *
+     * @param name         property name
+     * @param defaultValue value to use when db.properties does not set it
+     */
+    public static String getProperty(String name, String defaultValue) {
+        var value = props.getProperty(name);
+        return value == null ? defaultValue : value.trim();
+    }
+
+    /**
+     * Creates the database if it does not already exist. Embedded databases are
+     * created when they are first connected to, so there is nothing to do for them.
      */
     public static void createDatabase() throws DataAccessException {
-        try {
+        if (embedded) {
+            return;
+        }
+        try (var conn = DriverManager.getConnection(connectionUrl, user, password)) {
             var statement = "CREATE DATABASE IF NOT EXISTS " + databaseName;
-            var conn = DriverManager.getConnection(connectionUrl, user, password);
             try (var preparedStatement = conn.prepareStatement(statement)) {
                 preparedStatement.executeUpdate();
             }
@@ -47,10 +92,11 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection to the database from the connection pool, with the catalog
+     * set based upon the properties specified in db.properties. Connections to the
+     * database should be short-lived, and you must close the connection when you are
+     * done with it, which returns it to the pool. The easiest way to do that is with a
+     * try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DbInfo.getConnection(databaseName)) {
@@ -60,11 +106,65 @@ public class DatabaseManager {
      */
     public static Connection getConnection() throws DataAccessException {
         try {
-            var conn = DriverManager.getConnection(connectionUrl, user, password);
-            conn.setCatalog(databaseName);
-            return conn;
-        } catch (SQLException e) {
+            return pool().getConnection();
+        } catch (SQLException | RuntimeException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return a snapshot of the connection pool's usage, or null if no connection has been made yet
+     */
+    public static synchronized PoolStats poolStats() {
+        if (pool == null) {
+            return null;
+        }
+        HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+        return new PoolStats(bean.getActiveConnections(), bean.getIdleConnections(), bean.getTotalConnections(),
+                bean.getThreadsAwaitingConnection(), pool.getMaximumPoolSize());
+    }
+
+    /**
+     * Closes every pooled connection. Later calls to getConnection start a new pool.
+     */
+    public static synchronized void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    /*
+     * The pool is started on first use rather than when the class loads, because the DAOs
+     * call createDatabase first and every pooled connection is opened on that database.
+     * Sizes and timeouts can be overridden with the db.pool.* properties.
+     */
+    private static synchronized HikariDataSource pool() {
+        if (pool == null) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("chess");
+            config.setJdbcUrl(connectionUrl);
+            config.setUsername(user);
+            config.setPassword(password);
+            if (!embedded) {
+                config.setCatalog(databaseName);
+                // Keep each connection's prepared statements parsed on the server and reuse them across calls
+                config.addDataSourceProperty("cachePrepStmts", "true");
+                config.addDataSourceProperty("useServerPrepStmts", "true");
+                config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(getIntProperty("db.prepStmtCacheSize", 64)));
+                config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+                // Send a statement batch as one multi-row INSERT instead of a round trip per row
+                config.addDataSourceProperty("rewriteBatchedStatements", "true");
+            }
+            config.setMaximumPoolSize(getIntProperty("db.pool.maxSize", 10));
+            config.setMinimumIdle(getIntProperty("db.pool.minIdle", 2));
+            config.setConnectionTimeout(getIntProperty("db.pool.connectionTimeoutMs", 5_000));
+            config.setValidationTimeout(getIntProperty("db.pool.validationTimeoutMs", 2_000));
+            config.setIdleTimeout(getIntProperty("db.pool.idleTimeoutMs", 300_000));
+            config.setMaxLifetime(getIntProperty("db.pool.maxLifetimeMs", 1_800_000));
+            config.setLeakDetectionThreshold(getIntProperty("db.pool.leakDetectionMs", 10_000));
+            pool = new HikariDataSource(config);
+        }
+        return pool;
+    }
+}
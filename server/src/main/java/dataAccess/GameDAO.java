@@ -1,5 +1,6 @@
 package dataAccess;
 
+import chess.ChessMove;
 import model.GameData;
 
 import java.util.HashSet;
@@ -11,6 +12,29 @@ public interface GameDAO {
     GameData getGame(int gameID) throws DataAccessException;
     boolean gameExists(int gameID);
 
+    /**
+     * Replaces the stored game, but only if it has not been replaced since it was read:
+     * its stored version must still equal game.version(). The stored version then goes
+     * up by one, so callers must read the game again before updating it again. Moves
+     * logged with appendMove do not change the version; the ply they are logged at
+     * guards them instead.
+     *
+     * @throws ConcurrentUpdateException if the stored version is no longer game.version()
+     * @throws DataAccessException if the game does not exist
+     */
     void updateGame(GameData game) throws DataAccessException;
+
+    /**
+     * Records a single move of a game without rewriting the rest of it. The move is
+     * logged at the game's current ply, so the first move of a game is ply 1. The given
+     * game becomes the stored one, so the move can be made on a copy, leaving the stored
+     * game as it was if this fails.
+     *
+     * @param game the game, with the move already made on it, at the version it was read at
+     * @param move the move that was made
+     * @throws ConcurrentUpdateException if the stored version is no longer game.version()
+     * @throws DataAccessException if the game does not exist or already has a move at that ply
+     */
+    void appendMove(GameData game, ChessMove move) throws DataAccessException;
     void clear();
 }
\ No newline at end of file
@@ -1,60 +1,68 @@
-
 package dataAccess;
 
+import chess.ChessMove;
 import model.GameData;
 
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryGameDAO implements GameDAO {
 
-    HashSet<GameData> db;
-
-    public MemoryGameDAO() {
-        db = HashSet.newHashSet(16);
-    }
+    // {gameID: game}
+    final ConcurrentHashMap<Integer, GameData> db = new ConcurrentHashMap<>();
 
     @Override
     public HashSet<GameData> listGames() {
-        return db;
+        return new HashSet<>(db.values());
     }
 
     @Override
     public void createGame(GameData game) {
-        db.add(game);
+        db.put(game.gameID(), game);
     }
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        for (GameData game : db) {
-            if (game.gameID() == gameID) {
-                return game;
-            }
+        GameData game = db.get(gameID);
+        if (game == null) {
+            throw new DataAccessException("Game not found, id: " +gameID);
         }
-        throw new DataAccessException("Game not found, id: " +gameID);
+        return game;
     }
 
     @Override
     public boolean gameExists(int gameID) {
-        for (GameData game : db) {
-            if (game.gameID() == gameID) {
-                return true;
-            }
+        return db.containsKey(gameID);
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        GameData current = getGame(game.gameID());
+        GameData updated = new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                game.game(), game.version() + 1);
+        // replace only succeeds if nobody swapped in a newer copy since current was read
+        if (current.version() != game.version() || !db.replace(game.gameID(), current, updated)) {
+            throw new ConcurrentUpdateException(game.gameID(), game.version());
         }
-        return false;
     }
 
     @Override
-    public void updateGame(GameData game) {
-        try {
-            db.remove(getGame(game.gameID()));
-            db.add(game);
-        } catch (DataAccessException e) {
-            db.add(game);
+    public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+        GameData current = getGame(game.gameID());
+        if (current.game() == game.game()) {
+            // The move was made on the stored game itself, so there is nothing to write
+            return;
+        }
+        if (current.version() != game.version()) {
+            throw new ConcurrentUpdateException(game.gameID(), game.version());
+        }
+        if (current.game().getPly() != game.game().getPly() - 1 || !db.replace(game.gameID(), current, game)) {
+            throw new DataAccessException("Game %d already has a move at ply %d".formatted(game.gameID(), game.game().getPly()));
         }
     }
 
     @Override
     public void clear() {
-        db = HashSet.newHashSet(16);
+        db.clear();
     }
 }
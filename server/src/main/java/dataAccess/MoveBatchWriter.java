@@ -0,0 +1,166 @@
+package dataAccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes move log rows to the moves table, committing the rows of moves made at about the
+ * same time together, so a burst of moves costs one round trip rather than one per move.
+ * With rewriteBatchedStatements on, Connector/J sends each batch as a single multi-row INSERT.
+ * <p>
+ * write only returns once its row is committed, so a move that has been acknowledged is
+ * never lost. While one batch is being written, the rows that arrive wait and go out
+ * together as the next one; a move made while nothing is being written goes out at once.
+ * Batches are written one at a time, in the order their rows were added.
+ * <p>
+ * If a batch is rejected, its rows are written one by one so that only a row the
+ * database refuses, such as a duplicate ply, fails; the rest are still written.
+ */
+public class MoveBatchWriter {
+
+    private record PendingMove(int gameID, int ply, short move, CompletableFuture<Void> written) {}
+
+    private static final String INSERT = "INSERT INTO moves (gameID, ply, move) VALUES(?, ?, ?)";
+
+    private final int maxBatchSize;
+    // Held while writing so batches reach the database in order; the lock on this only guards pending
+    private final Object writeLock = new Object();
+    private List<PendingMove> pending = new ArrayList<>();
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong rejectedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+
+    public record Stats(long batches, long rows, long rejectedRows, long failedRows, int pending) {}
+
+    /**
+     * @param maxBatchSize most rows written in one batch
+     */
+    MoveBatchWriter(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Logs a move, returning once it is committed.
+     *
+     * @throws DataAccessException if the move was not written, because its ply is already
+     *                             logged or the database could not be reached
+     */
+    void write(int gameID, int ply, short move) throws DataAccessException {
+        PendingMove row = new PendingMove(gameID, ply, move, new CompletableFuture<>());
+        synchronized (this) {
+            pending.add(row);
+        }
+        // Whoever holds the lock may take this row along with theirs; if not, it goes out in the next batch
+        while (!row.written().isDone()) {
+            synchronized (writeLock) {
+                if (!row.written().isDone()) {
+                    writeBatch();
+                }
+            }
+        }
+        try {
+            row.written().join();
+        } catch (CompletionException e) {
+            throw new DataAccessException(e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Fails every move not yet written, for when the tables are about to be cleared.
+     */
+    void discard() {
+        List<PendingMove> dropped;
+        synchronized (this) {
+            dropped = pending;
+            pending = new ArrayList<>();
+        }
+        for (PendingMove move : dropped) {
+            move.written().completeExceptionally(new DataAccessException("Move log was cleared"));
+        }
+    }
+
+    synchronized Stats stats() {
+        return new Stats(batches.get(), rows.get(), rejectedRows.get(), failedRows.get(), pending.size());
+    }
+
+    // Called with writeLock held
+    private void writeBatch() {
+        List<PendingMove> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (pending.size() <= maxBatchSize) {
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            else {
+                batch = new ArrayList<>(pending.subList(0, maxBatchSize));
+                pending = new ArrayList<>(pending.subList(maxBatchSize, pending.size()));
+            }
+        }
+        try (var conn = DatabaseManager.getConnection()) {
+            try {
+                insertAll(conn, batch);
+                rows.addAndGet(batch.size());
+                batches.incrementAndGet();
+                for (PendingMove move : batch) {
+                    move.written().complete(null);
+                }
+                return;
+            } catch (SQLException e) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            // Row by row, so one bad row only costs itself
+            try (var statement = conn.prepareStatement(INSERT)) {
+                for (PendingMove move : batch) {
+                    bind(statement, move);
+                    try {
+                        statement.executeUpdate();
+                        rows.incrementAndGet();
+                        move.written().complete(null);
+                    } catch (SQLIntegrityConstraintViolationException e) {
+                        rejectedRows.incrementAndGet();
+                        move.written().completeExceptionally(new DataAccessException(
+                                "Move already logged for game %d ply %d".formatted(move.gameID(), move.ply())));
+                    }
+                }
+            }
+        } catch (SQLException | DataAccessException e) {
+            DataAccessException failure = new DataAccessException("Failed to write logged moves: " + e.getMessage());
+            for (PendingMove move : batch) {
+                if (move.written().completeExceptionally(failure)) {
+                    failedRows.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void insertAll(Connection conn, List<PendingMove> batch) throws SQLException {
+        conn.setAutoCommit(false);
+        try (var statement = conn.prepareStatement(INSERT)) {
+            for (PendingMove move : batch) {
+                bind(statement, move);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        conn.commit();
+    }
+
+    private static void bind(PreparedStatement statement, PendingMove move) throws SQLException {
+        statement.setInt(1, move.gameID());
+        statement.setInt(2, move.ply());
+        statement.setShort(3, move.move());
+    }
+}
@@ -0,0 +1,95 @@
+package dataAccess;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs BCrypt on a small pool of its own threads, so a burst of registers and logins
+ * can only use that many cores and leaves the rest for serving games.
+ * <p>
+ * The pool has a bounded queue. Once it is full, further requests are turned away with
+ * a ServiceUnavailableException straight away instead of waiting behind the backlog.
+ */
+public class PasswordHasher {
+
+    private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong slowestNanos = new AtomicLong();
+
+    /**
+     * @param averageMillis mean time from submitting a hash or check to it finishing, queueing included
+     */
+    public record Stats(int threads, int queued, long completed, long rejected, double averageMillis,
+                        double slowestMillis) {}
+
+    public PasswordHasher() {
+        this(DatabaseManager.getIntProperty("password.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                DatabaseManager.getIntProperty("password.queueSize", 32));
+    }
+
+    /**
+     * @param threads   most BCrypt operations run at once
+     * @param queueSize most operations that may wait for a thread before new ones are rejected
+     */
+    public PasswordHasher(int threads, int queueSize) {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), task -> {
+            Thread thread = new Thread(task, "password-hasher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public String hash(String password) throws ServiceUnavailableException {
+        return run(() -> encoder.encode(password));
+    }
+
+    public boolean matches(String rawPassword, String hashedPassword) throws ServiceUnavailableException {
+        return run(() -> encoder.matches(rawPassword, hashedPassword));
+    }
+
+    public Stats stats() {
+        long done = completed.get();
+        return new Stats(executor.getMaximumPoolSize(), executor.getQueue().size(), done, rejected.get(),
+                done == 0 ? 0 : totalNanos.get() / 1e6 / done, slowestNanos.get() / 1e6);
+    }
+
+    private <T> T run(Callable<T> work) throws ServiceUnavailableException {
+        long start = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(work);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new ServiceUnavailableException("Too many logins in progress");
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted waiting for password check");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            completed.incrementAndGet();
+            totalNanos.addAndGet(elapsed);
+            slowestNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+}
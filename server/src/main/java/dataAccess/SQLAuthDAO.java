@@ -69,7 +69,7 @@ public class SQLAuthDAO implements AuthDAO {
     @Override
     public void clear() {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var statement = conn.prepareStatement("TRUNCATE auth")) {
+            try (var statement = conn.prepareStatement("TRUNCATE TABLE auth")) {
                 statement.executeUpdate();
             } catch (SQLException e) {
                 throw new RuntimeException(e);
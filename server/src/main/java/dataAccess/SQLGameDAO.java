@@ -1,15 +1,49 @@
 package dataAccess;
 
 import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.ChessMove;
+import chess.InvalidMoveException;
 import com.google.gson.Gson;
 import model.GameData;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SQLGameDAO implements GameDAO {
 
+    // Plies between stored snapshots, and so the most moves a load ever has to replay
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 20;
+    private static final int DEFAULT_MOVE_BATCH_SIZE = 200;
+
+    private final int snapshotInterval;
+    private final MoveBatchWriter moveWriter;
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong movesReplayed = new AtomicLong();
+    private final AtomicLong longestReplay = new AtomicLong();
+
+    public record Stats(int snapshotInterval, long loads, long movesReplayed, long longestReplay) {}
+
     public SQLGameDAO() {
+        this(DatabaseManager.getIntProperty("game.snapshotInterval", DEFAULT_SNAPSHOT_INTERVAL),
+                DatabaseManager.getIntProperty("game.moveBatchSize", DEFAULT_MOVE_BATCH_SIZE));
+    }
+
+    /**
+     * @param snapshotInterval store the whole game every this many plies; games are
+     *                         also stored whole when they end
+     * @param moveBatchSize    most logged moves written in one batch
+     */
+    public SQLGameDAO(int snapshotInterval, int moveBatchSize) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be at least 1, was " + snapshotInterval);
+        }
+        this.snapshotInterval = snapshotInterval;
+        this.moveWriter = new MoveBatchWriter(moveBatchSize);
         try { DatabaseManager.createDatabase(); } catch (DataAccessException ex) {
             throw new RuntimeException(ex);
         }
@@ -20,12 +54,25 @@ public class SQLGameDAO implements GameDAO {
                                     whiteUsername VARCHAR(255),
                                     blackUsername VARCHAR(255),
                                     gameName VARCHAR(255),
-                                    chessGame TEXT,
+                                    chessGame BLOB,
+                                    snapshotPly INT NOT NULL DEFAULT 0,
+                                    version INT NOT NULL DEFAULT 0,
                                     PRIMARY KEY (gameID)
                                     )""";
             try (var createTableStatement = conn.prepareStatement(createTestTable)) {
                 createTableStatement.executeUpdate();
             }
+            var createMovesTable = """
+                    CREATE TABLE if NOT EXISTS moves (
+                                    gameID INT NOT NULL,
+                                    ply INT NOT NULL,
+                                    move SMALLINT NOT NULL,
+                                    PRIMARY KEY (gameID, ply)
+                                    )""";
+            try (var createTableStatement = conn.prepareStatement(createMovesTable)) {
+                createTableStatement.executeUpdate();
+            }
+            migrateGameTable(conn);
         } catch (SQLException | DataAccessException e) {
             throw new RuntimeException(e);
         }
@@ -33,35 +80,54 @@ public class SQLGameDAO implements GameDAO {
 
     @Override
     public HashSet<GameData> listGames() {
-        HashSet<GameData> games = HashSet.newHashSet(16);
+        HashMap<Integer, GameData> games = HashMap.newHashMap(16);
         try (var conn = DatabaseManager.getConnection()) {
-            try (var statement = conn.prepareStatement("SELECT gameID, whiteUsername, blackUsername, gameName, chessGame FROM game")) {
+            try (var statement = conn.prepareStatement("SELECT gameID, whiteUsername, blackUsername, gameName, chessGame, snapshotPly, version FROM game")) {
                 try (var results = statement.executeQuery()) {
                     while (results.next()) {
                         var gameID = results.getInt("gameID");
                         var whiteUsername = results.getString("whiteUsername");
                         var blackUsername = results.getString("blackUsername");
                         var gameName = results.getString("gameName");
-                        var chessGame = deserializeGame(results.getString("chessGame"));
-                        games.add(new GameData(gameID, whiteUsername, blackUsername, gameName, chessGame));
+                        var chessGame = deserializeGame(results.getBytes("chessGame"), results.getInt("snapshotPly"));
+                        var version = results.getInt("version");
+                        games.put(gameID, new GameData(gameID, whiteUsername, blackUsername, gameName, chessGame, version));
                     }
                 }
             }
+            var movesSinceSnapshots = """
+                    SELECT moves.gameID, moves.move FROM moves JOIN game ON moves.gameID = game.gameID
+                    WHERE moves.ply > game.snapshotPly ORDER BY moves.gameID, moves.ply""";
+            HashMap<Integer, Integer> replayed = HashMap.newHashMap(games.size());
+            try (var statement = conn.prepareStatement(movesSinceSnapshots)) {
+                try (var results = statement.executeQuery()) {
+                    while (results.next()) {
+                        var gameID = results.getInt("gameID");
+                        replayMove(games.get(gameID).game(), results.getShort("move"));
+                        replayed.merge(gameID, 1, Integer::sum);
+                    }
+                }
+            }
+            for (var gameID : games.keySet()) {
+                recordLoad(replayed.getOrDefault(gameID, 0));
+            }
         } catch (SQLException | DataAccessException e) {
             return null;
         }
-        return games;
+        return new HashSet<>(games.values());
     }
 
     @Override
     public void createGame(GameData game) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var statement = conn.prepareStatement("INSERT INTO game (gameID, whiteUsername, blackUsername, gameName, chessGame) VALUES(?, ?, ?, ?, ?)")) {
+            try (var statement = conn.prepareStatement("INSERT INTO game (gameID, whiteUsername, blackUsername, gameName, chessGame, snapshotPly, version) VALUES(?, ?, ?, ?, ?, ?, ?)")) {
                 statement.setInt(1, game.gameID());
                 statement.setString(2, game.whiteUsername());
                 statement.setString(3, game.blackUsername());
                 statement.setString(4, game.gameName());
-                statement.setString(5, serializeGame(game.game()));
+                statement.setBytes(5, serializeGame(game.game()));
+                statement.setInt(6, game.game().getPly());
+                statement.setInt(7, game.version());
                 statement.executeUpdate();
             }
         } catch (SQLException e) {
@@ -72,17 +138,32 @@ public class SQLGameDAO implements GameDAO {
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var statement = conn.prepareStatement("SELECT whiteUsername, blackUsername, gameName, chessGame FROM game WHERE gameID=?")) {
+            GameData game;
+            try (var statement = conn.prepareStatement("SELECT whiteUsername, blackUsername, gameName, chessGame, snapshotPly, version FROM game WHERE gameID=?")) {
                 statement.setInt(1, gameID);
                 try (var results = statement.executeQuery()) {
                     results.next();
                     var whiteUsername = results.getString("whiteUsername");
                     var blackUsername = results.getString("blackUsername");
                     var gameName = results.getString("gameName");
-                    var chessGame = deserializeGame(results.getString("chessGame"));
-                    return new GameData(gameID, whiteUsername, blackUsername, gameName, chessGame);
+                    var chessGame = deserializeGame(results.getBytes("chessGame"), results.getInt("snapshotPly"));
+                    var version = results.getInt("version");
+                    game = new GameData(gameID, whiteUsername, blackUsername, gameName, chessGame, version);
+                }
+            }
+            try (var statement = conn.prepareStatement("SELECT move FROM moves WHERE gameID=? AND ply>? ORDER BY ply")) {
+                statement.setInt(1, gameID);
+                statement.setInt(2, game.game().getPly());
+                try (var results = statement.executeQuery()) {
+                    int replayed = 0;
+                    while (results.next()) {
+                        replayMove(game.game(), results.getShort("move"));
+                        replayed++;
+                    }
+                    recordLoad(replayed);
                 }
             }
+            return game;
         } catch (SQLException e) {
             throw new DataAccessException("Game not found, id: " + gameID);
         }
@@ -105,24 +186,92 @@ public class SQLGameDAO implements GameDAO {
     @Override
     public void updateGame(GameData game) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var statement = conn.prepareStatement("UPDATE game SET whiteUsername=?, blackUsername=?, gameName=?, chessGame=? WHERE gameID=?")) {
+            var update = "UPDATE game SET whiteUsername=?, blackUsername=?, gameName=?, chessGame=?, snapshotPly=?, version=version+1 WHERE gameID=? AND version=?";
+            try (var statement = conn.prepareStatement(update)) {
                 statement.setString(1, game.whiteUsername());
                 statement.setString(2, game.blackUsername());
                 statement.setString(3, game.gameName());
-                statement.setString(4, serializeGame(game.game()));
-                statement.setInt(5, game.gameID());
+                statement.setBytes(4, serializeGame(game.game()));
+                statement.setInt(5, game.game().getPly());
+                statement.setInt(6, game.gameID());
+                statement.setInt(7, game.version());
                 int rowsUpdated = statement.executeUpdate();
-                if (rowsUpdated == 0) throw new DataAccessException("Item requested to be updated not found");
+                if (rowsUpdated == 0) {
+                    if (gameExists(game.gameID())) throw new ConcurrentUpdateException(game.gameID(), game.version());
+                    throw new DataAccessException("Item requested to be updated not found");
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+        logMove(game, move);
+        if (snapshotDue(game)) {
+            storeSnapshot(game);
+        }
+    }
+
+    /**
+     * Writes the move to the move log, returning once it is committed. Unlike appendMove,
+     * never stores a snapshot.
+     *
+     * @param game the game, with the move already made on it
+     * @throws DataAccessException if the move could not be written or its ply is already logged
+     */
+    public void logMove(GameData game, ChessMove move) throws DataAccessException {
+        moveWriter.write(game.gameID(), game.game().getPly(), ChessGameCodec.encodeMove(move));
+    }
+
+    /**
+     * @return whether the game, as of its latest move, should be stored whole
+     */
+    public boolean snapshotDue(GameData game) {
+        return game.game().getPly() % snapshotInterval == 0 || game.game().getGameOver();
+    }
+
+    /**
+     * Stores the whole game as a snapshot at its current ply. Its moves must already be
+     * logged, so a snapshot is never ahead of the log, and a snapshot older than the one
+     * stored is ignored. The version is left alone.
+     */
+    public void storeSnapshot(GameData game) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var statement = conn.prepareStatement("UPDATE game SET chessGame=?, snapshotPly=? WHERE gameID=? AND snapshotPly<=?")) {
+                statement.setBytes(1, serializeGame(game.game()));
+                statement.setInt(2, game.game().getPly());
+                statement.setInt(3, game.gameID());
+                statement.setInt(4, game.game().getPly());
+                // Nothing updated is also what a newer snapshot already being stored looks like
+                if (statement.executeUpdate() == 0 && !gameExists(game.gameID())) {
+                    throw new DataAccessException("Game not found, id: " + game.gameID());
+                }
             }
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
 
+    public Stats stats() {
+        return new Stats(snapshotInterval, loads.get(), movesReplayed.get(), longestReplay.get());
+    }
+
+    public MoveBatchWriter.Stats moveWriterStats() {
+        return moveWriter.stats();
+    }
+
     @Override
     public void clear() {
+        moveWriter.discard();
         try (var conn = DatabaseManager.getConnection()) {
-            try (var statement = conn.prepareStatement("TRUNCATE game")) {
+            try (var statement = conn.prepareStatement("TRUNCATE TABLE game")) {
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+            try (var statement = conn.prepareStatement("TRUNCATE TABLE moves")) {
                 statement.executeUpdate();
             } catch (SQLException e) {
                 throw new RuntimeException(e);
@@ -131,11 +280,71 @@ public class SQLGameDAO implements GameDAO {
         }
     }
 
-    private String serializeGame(ChessGame game) {
-        return new Gson().toJson(game);
+    /*
+     * Brings game tables created by older versions up to date. Games used to be stored as Gson
+     * JSON in a TEXT column; switching the column to BLOB keeps those rows' bytes as they are, so
+     * they are still read as JSON below and are rewritten in the binary form on their next update.
+     * Tables from before the move log get a snapshotPly of 0, which no logged move is at or below,
+     * and tables from before versioning start every game at version 0.
+     */
+    private void migrateGameTable(Connection conn) throws SQLException {
+        String chessGameType = columnType(conn, "chessGame");
+        if (chessGameType != null && chessGameType.toUpperCase().contains("TEXT")) {
+            try (var statement = conn.prepareStatement("ALTER TABLE game MODIFY chessGame BLOB")) {
+                statement.executeUpdate();
+            }
+        }
+        if (columnType(conn, "snapshotPly") == null) {
+            try (var statement = conn.prepareStatement("ALTER TABLE game ADD COLUMN snapshotPly INT NOT NULL DEFAULT 0")) {
+                statement.executeUpdate();
+            }
+        }
+        if (columnType(conn, "version") == null) {
+            try (var statement = conn.prepareStatement("ALTER TABLE game ADD COLUMN version INT NOT NULL DEFAULT 0")) {
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private String columnType(Connection conn, String column) throws SQLException {
+        try (var results = conn.getMetaData().getColumns(conn.getCatalog(), null, "game", null)) {
+            while (results.next()) {
+                if (results.getString("COLUMN_NAME").equalsIgnoreCase(column)) {
+                    return results.getString("TYPE_NAME");
+                }
+            }
+            return null;
+        }
+    }
+
+    private byte[] serializeGame(ChessGame game) {
+        return ChessGameCodec.encode(game);
     }
 
-    private ChessGame deserializeGame(String serializedGame) {
-        return new Gson().fromJson(serializedGame, ChessGame.class);
+    private ChessGame deserializeGame(byte[] serializedGame, int snapshotPly) {
+        ChessGame game;
+        if (serializedGame.length > 0 && serializedGame[0] == '{') {
+            game = new Gson().fromJson(new String(serializedGame, StandardCharsets.UTF_8), ChessGame.class);
+        }
+        else {
+            game = ChessGameCodec.decode(serializedGame);
+        }
+        game.setPly(snapshotPly);
+        return game;
+    }
+
+    private void recordLoad(int replayed) {
+        loads.incrementAndGet();
+        movesReplayed.addAndGet(replayed);
+        longestReplay.accumulateAndGet(replayed, Math::max);
+    }
+
+    // Logged moves were validated when they were made, so failing here means the log is corrupt
+    private void replayMove(ChessGame game, short encodedMove) throws DataAccessException {
+        try {
+            game.makeMove(ChessGameCodec.decodeMove(encodedMove));
+        } catch (InvalidMoveException | IllegalArgumentException e) {
+            throw new DataAccessException("Move log does not apply to the stored game: " + e.getMessage());
+        }
     }
 }
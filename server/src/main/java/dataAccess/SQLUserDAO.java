@@ -1,13 +1,18 @@
 package dataAccess;
 
 import model.UserData;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-
 import java.sql.SQLException;
 
 public class SQLUserDAO implements UserDAO {
 
+    private final PasswordHasher passwordHasher;
+
     public SQLUserDAO() {
+        this(new PasswordHasher());
+    }
+
+    public SQLUserDAO(PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
         try { DatabaseManager.createDatabase(); } catch (DataAccessException ex) {
             throw new RuntimeException(ex);
         }
@@ -46,11 +51,13 @@ public class SQLUserDAO implements UserDAO {
     }
 
     @Override
-    public void createUser(UserData user) throws DataAccessException {
+    public void createUser(UserData user) throws DataAccessException, ServiceUnavailableException {
+        // Hashed before taking a connection so the pool is not held while BCrypt runs
+        String hashedPassword = passwordHasher.hash(user.password());
         try (var conn = DatabaseManager.getConnection()) {
             try (var statement = conn.prepareStatement("INSERT INTO user (username, password, email) VALUES(?, ?, ?)")) {
                 statement.setString(1, user.username());
-                statement.setString(2, hashPassword(user.password()));
+                statement.setString(2, hashedPassword);
                 statement.setString(3, user.email());
                 statement.executeUpdate();
             }
@@ -61,15 +68,15 @@ public class SQLUserDAO implements UserDAO {
 
 
     @Override
-    public boolean authenticateUser(String username, String password) throws DataAccessException {
+    public boolean authenticateUser(String username, String password) throws DataAccessException, ServiceUnavailableException {
         UserData user = getUser(username);
-        return passwordMatches(password, user.password());
+        return passwordHasher.matches(password, user.password());
     }
 
     @Override
     public void clear() {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var statement = conn.prepareStatement("TRUNCATE user")) {
+            try (var statement = conn.prepareStatement("TRUNCATE TABLE user")) {
                 statement.executeUpdate();
             } catch (SQLException e) {
                 throw new RuntimeException(e);
@@ -77,14 +84,4 @@ public class SQLUserDAO implements UserDAO {
         } catch (SQLException | DataAccessException e) {
         }
     }
-
-    private String hashPassword(String password) {
-        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
-        return encoder.encode(password);
-    }
-
-    private boolean passwordMatches(String rawPassword, String hashedPassword) {
-        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
-        return encoder.matches(rawPassword, hashedPassword);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package dataAccess;
+
+/**
+ * Indicates that the server is too busy to take the request right now
+ */
+public class ServiceUnavailableException extends Exception {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,150 @@
+package dataAccess;
+
+import model.AuthData;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Auth tokens that carry their own username and expiry, signed with HMAC-SHA256, so
+ * checking one needs no database: any server holding the same secret can verify it.
+ * <p>
+ * A token is {@code base64url(username).issuedAt.expiresAt.nonce.base64url(signature)},
+ * with times in epoch milliseconds. Nothing is stored when a token is issued. Logging out
+ * adds the token to a revocation set, kept only until the token would have expired
+ * anyway, and clearing rejects every token issued before the clear.
+ * <p>
+ * Both are kept by this server only: a token logged out on one server stays valid on
+ * every other server until it expires, so the token lifetime is also the longest a
+ * logged-out token can still be used elsewhere. Keep it short when running more than
+ * one server.
+ */
+public class SignedTokenAuthDAO implements AuthDAO, TokenIssuer {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final long PRUNE_INTERVAL_MS = 60_000;
+
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+    private final SecureRandom random = new SecureRandom();
+    // {token: expiresAt}
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile long clearedAt;
+    // Epoch milliseconds, but never handing out the same value twice, so issues and clears are strictly ordered
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong lastPrune = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * @param secret     signing key; every server that should accept the same tokens needs the same one
+     * @param ttlSeconds how long an issued token stays valid
+     */
+    public SignedTokenAuthDAO(byte[] secret, long ttlSeconds) {
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    @Override
+    public String issue(String username) {
+        long now = tick();
+        byte[] nonce = new byte[9];
+        random.nextBytes(nonce);
+        String payload = "%s.%d.%d.%s".formatted(ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8)),
+                now, now + ttlMillis, ENCODER.encodeToString(nonce));
+        return payload + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    // Issued tokens are checked by their signature, so there is nothing to store
+    @Override
+    public void addAuth(AuthData authData) {
+    }
+
+    @Override
+    public void deleteAuth(String authToken) {
+        long now = now();
+        pruneRevoked(now);
+        try {
+            revoked.put(authToken, verify(authToken, now).expiresAt());
+        } catch (DataAccessException e) {
+            // Already invalid, so there is nothing to revoke
+        }
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        Claims claims = verify(authToken, now());
+        if (revoked.containsKey(authToken)) {
+            throw new DataAccessException("Auth Token does not exist: " + authToken);
+        }
+        return new AuthData(claims.username(), authToken);
+    }
+
+    @Override
+    public void clear() {
+        clearedAt = tick();
+        revoked.clear();
+    }
+
+    public int revokedCount() {
+        return revoked.size();
+    }
+
+    private record Claims(String username, long expiresAt) {}
+
+    private Claims verify(String authToken, long now) throws DataAccessException {
+        int signatureStart = authToken == null ? -1 : authToken.lastIndexOf('.');
+        String[] fields = signatureStart < 0 ? new String[0] : authToken.substring(0, signatureStart).split("\\.");
+        if (fields.length != 4) {
+            throw new DataAccessException("Auth Token does not exist: " + authToken);
+        }
+        try {
+            byte[] signature = DECODER.decode(authToken.substring(signatureStart + 1));
+            if (!MessageDigest.isEqual(signature, sign(authToken.substring(0, signatureStart)))) {
+                throw new DataAccessException("Auth Token does not exist: " + authToken);
+            }
+            long issuedAt = Long.parseLong(fields[1]);
+            long expiresAt = Long.parseLong(fields[2]);
+            if (expiresAt <= now || issuedAt < clearedAt) {
+                throw new DataAccessException("Auth Token has expired: " + authToken);
+            }
+            return new Claims(new String(DECODER.decode(fields[0]), StandardCharsets.UTF_8), expiresAt);
+        } catch (IllegalArgumentException e) {
+            throw new DataAccessException("Auth Token does not exist: " + authToken);
+        }
+    }
+
+    // At most once a minute, so a logout does not scan the whole set each time
+    private void pruneRevoked(long now) {
+        long last = lastPrune.get();
+        if (now - last >= PRUNE_INTERVAL_MS && lastPrune.compareAndSet(last, now)) {
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private long tick() {
+        long now = now();
+        return clock.updateAndGet(last -> Math.max(last + 1, now));
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,10 @@
+package dataAccess;
+
+/**
+ * Creates the auth tokens handed out on register and login
+ */
+@FunctionalInterface
+public interface TokenIssuer {
+
+    String issue(String username);
+}
@@ -5,8 +5,8 @@ import model.UserData;
 public interface UserDAO {
 
     UserData getUser(String username) throws DataAccessException;
-    void createUser(UserData user) throws DataAccessException;
-    boolean authenticateUser(String username, String password) throws DataAccessException;
+    void createUser(UserData user) throws DataAccessException, ServiceUnavailableException;
+    boolean authenticateUser(String username, String password) throws DataAccessException, ServiceUnavailableException;
     void clear();
 
 }
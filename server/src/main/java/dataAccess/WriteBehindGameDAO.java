@@ -0,0 +1,387 @@
+package dataAccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import model.GameData;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps games that are being played in memory and writes changes to them through to a
+ * SQLGameDAO, so reads during play never go to the database.
+ * <p>
+ * The in-memory copy is authoritative: reads of a cached game never go to the backing
+ * DAO. getGame hands out that live copy, so it must only be called, and the game only
+ * changed, from the game's own mailbox. listGames instead returns the copies taken when
+ * each game was last written, which nothing changes and any thread may read.
+ * <p>
+ * Moves are durable: appendMove writes the move to the move log and only returns once
+ * it is committed, so a move that has been acknowledged survives a crash. New games are
+ * also written before createGame returns. Everything else goes behind: snapshots of
+ * the whole game and updates to the game row, such as players joining or a resignation.
+ * <p>
+ * Those writes are queued and applied one at a time in the order they were made, each
+ * against a copy of the game taken when it was queued. A write that fails is retried
+ * with backoff, holding back the writes behind it so they stay in order. The queue is
+ * bounded, so once it is full writers block until the database catches up.
+ * <p>
+ * Queued writes live only in memory. If the process dies, or the database still fails
+ * after every retry, they are lost; the failed count in stats shows when that happens.
+ * A lost snapshot costs nothing, since the game is rebuilt from the move log, but a
+ * lost game row update, such as a join or a resignation, is gone.
+ * Version checks in updateGame are against the in-memory copy, so they only see
+ * writers on this server; see updateGame.
+ * close flushes the queue, and so does a JVM shutdown hook.
+ * <p>
+ * A game leaves memory once it has ended and its last write has landed, or once no
+ * one has read it for the idle timeout and nothing for it is queued.
+ */
+public class WriteBehindGameDAO implements GameDAO {
+
+    private static final int DEFAULT_CAPACITY = 10_000;
+    private static final int DEFAULT_IDLE_SECONDS = 600;
+    private static final int DEFAULT_WRITE_ATTEMPTS = 6;
+    private static final long FIRST_RETRY_DELAY_MS = 100;
+    private static final long MAX_RETRY_DELAY_MS = 5_000;
+
+    private final SQLGameDAO stored;
+    private final ConcurrentHashMap<Integer, Entry> active = new ConcurrentHashMap<>();
+    private final BlockingQueue<Runnable> writes;
+    private final long idleNanos;
+    private final int writeAttempts;
+
+    private Thread writer;
+    private Thread shutdownHook;
+    private volatile boolean running;
+    private long lastSweep = System.nanoTime();
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public record Stats(int activeGames, int pendingWrites, long queued, long written, long retried, long failed,
+                        long conflicts, long evicted) {}
+
+    public WriteBehindGameDAO(SQLGameDAO stored) {
+        this(stored, DatabaseManager.getIntProperty("game.writeBehindCapacity", DEFAULT_CAPACITY),
+                DatabaseManager.getIntProperty("game.activeIdleSeconds", DEFAULT_IDLE_SECONDS),
+                DatabaseManager.getIntProperty("game.writeAttempts", DEFAULT_WRITE_ATTEMPTS));
+    }
+
+    /**
+     * @param stored        DAO the games are written to
+     * @param capacity      most writes that may be waiting before writers have to wait too
+     * @param idleSeconds   how long a game may go unread before it is dropped from memory
+     * @param writeAttempts how many times a write is tried before it is given up on
+     */
+    public WriteBehindGameDAO(SQLGameDAO stored, int capacity, int idleSeconds, int writeAttempts) {
+        this.stored = stored;
+        this.writes = new ArrayBlockingQueue<>(capacity);
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+        this.writeAttempts = writeAttempts;
+    }
+
+    /**
+     * Starts writing queued changes to the backing DAO.
+     */
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "game-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+        shutdownHook = new Thread(this::flushQuietly, "game-write-behind-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Writes everything still queued, then stops the writer.
+     */
+    public synchronized void close() throws DataAccessException {
+        if (writer == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            running = false;
+            writer.interrupt();
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down, and the hook has done or is doing the flush
+            }
+            writer = null;
+        }
+    }
+
+    @Override
+    public HashSet<GameData> listGames() {
+        HashSet<GameData> storedGames = stored.listGames();
+        if (storedGames == null) {
+            return null;
+        }
+        HashMap<Integer, GameData> games = HashMap.newHashMap(storedGames.size() + active.size());
+        for (GameData game : storedGames) {
+            games.put(game.gameID(), game);
+        }
+        for (Entry entry : active.values()) {
+            games.put(entry.snapshot.gameID(), entry.snapshot);
+        }
+        return new HashSet<>(games.values());
+    }
+
+    // Written straight away, so the moves logged for the game always have a game to belong to
+    @Override
+    public void createGame(GameData game) throws DataAccessException {
+        Entry entry = new Entry(game, copyOf(game));
+        stored.createGame(entry.snapshot);
+        active.put(game.gameID(), entry);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        Entry entry = active.get(gameID);
+        if (entry != null) {
+            entry.touch();
+            return entry.game;
+        }
+        GameData game = stored.getGame(gameID);
+        if (game.game().getGameOver()) {
+            return game;
+        }
+        Entry loaded = active.putIfAbsent(gameID, new Entry(game, copyOf(game)));
+        if (loaded != null) {
+            loaded.touch();
+            return loaded.game;
+        }
+        return game;
+    }
+
+    @Override
+    public boolean gameExists(int gameID) {
+        return active.containsKey(gameID) || stored.gameExists(gameID);
+    }
+
+    /*
+     * Versions are checked against the in-memory copy, so the check only covers writers on
+     * this server. The queued write carries the version that was current here, and the
+     * backing DAO checks it again when it is applied. If something else has changed the
+     * stored game by then, the caller has already been told it succeeded: the write is
+     * counted as a conflict and the game is dropped from memory once its queued writes are
+     * done, so the next read loads the stored game.
+     */
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        Entry entry = active.get(game.gameID());
+        if (entry == null) {
+            // Not being played, so nothing for it is queued and the stored copy is current
+            stored.updateGame(game);
+            return;
+        }
+        GameData updated = new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                game.game(), game.version() + 1);
+        synchronized (entry) {
+            if (entry.game.version() != game.version()) {
+                throw new ConcurrentUpdateException(game.gameID(), game.version());
+            }
+            entry.game = updated;
+        }
+        GameData copy = copyOf(game);
+        entry.snapshot = new GameData(copy.gameID(), copy.whiteUsername(), copy.blackUsername(), copy.gameName(),
+                copy.game(), updated.version());
+        enqueue(entry, () -> stored.updateGame(copy));
+    }
+
+    /*
+     * The given game replaces the in-memory one once the move is logged, which happens before
+     * this returns; only the snapshot that is sometimes due after it is queued.
+     */
+    @Override
+    public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+        Entry held = active.get(game.gameID());
+        if (held != null && held.game.version() != game.version()) {
+            throw new ConcurrentUpdateException(game.gameID(), game.version());
+        }
+        GameData copy = copyOf(game);
+        stored.logMove(copy, move);
+        Entry entry = active.computeIfAbsent(game.gameID(), id -> new Entry(game, copy));
+        entry.game = game;
+        entry.snapshot = copy;
+        if (stored.snapshotDue(copy)) {
+            enqueue(entry, () -> stored.storeSnapshot(copy));
+        }
+    }
+
+    @Override
+    public void clear() {
+        flushQuietly();
+        active.clear();
+        stored.clear();
+    }
+
+    /**
+     * Waits until every write queued so far has been applied to the backing DAO.
+     */
+    public void flush() throws DataAccessException {
+        if (!running) {
+            return;
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        put(() -> done.complete(null));
+        try {
+            done.get();
+        } catch (Exception e) {
+            throw new DataAccessException("Interrupted waiting for game writes: " + e.getMessage());
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(active.size(), writes.size(), queued.get(), written.get(), retried.get(), failed.get(),
+                conflicts.get(), evicted.get());
+    }
+
+    private void enqueue(Entry entry, Write write) throws DataAccessException {
+        queued.incrementAndGet();
+        entry.pendingWrites.incrementAndGet();
+        entry.touch();
+        put(() -> {
+            if (!apply(write)) {
+                entry.conflicted = true;
+            }
+            entry.pendingWrites.decrementAndGet();
+            // Finished games will not change again, so once their last write has landed they no longer need to be held
+            if (entry.pendingWrites.get() == 0 && (entry.conflicted || entry.snapshot.game().getGameOver())) {
+                active.remove(entry.snapshot.gameID(), entry);
+            }
+        });
+    }
+
+    // Returns false if the stored game had been changed by something else
+    private boolean apply(Write write) {
+        long delay = FIRST_RETRY_DELAY_MS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write.apply();
+                written.incrementAndGet();
+                return true;
+            } catch (ConcurrentUpdateException e) {
+                // Trying the same version again can not succeed
+                conflicts.incrementAndGet();
+                System.err.println("Stored game changed underneath a queued write: " + e.getMessage());
+                return false;
+            } catch (DataAccessException | RuntimeException e) {
+                if (attempt >= writeAttempts || !running) {
+                    failed.incrementAndGet();
+                    System.err.printf("Gave up writing game after %d attempts: %s%n", attempt, e.getMessage());
+                    return true;
+                }
+                retried.incrementAndGet();
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    private void put(Runnable task) throws DataAccessException {
+        try {
+            writes.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted queueing a game write");
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            try {
+                Runnable task = writes.poll(1, TimeUnit.SECONDS);
+                if (task != null) {
+                    task.run();
+                }
+                evictIdle();
+            } catch (InterruptedException e) {
+                // close interrupts to stop; anything queued after its flush is drained below
+            }
+        }
+        Runnable task;
+        while ((task = writes.poll()) != null) {
+            task.run();
+        }
+    }
+
+    // Runs on the writer, so an evicted game can not have a write about to start
+    private void evictIdle() {
+        long now = System.nanoTime();
+        if (now - lastSweep < TimeUnit.SECONDS.toNanos(1)) {
+            return;
+        }
+        lastSweep = now;
+        for (Entry entry : active.values()) {
+            if (entry.pendingWrites.get() == 0 && now - entry.lastAccess > idleNanos
+                    && active.remove(entry.game.gameID(), entry)) {
+                evicted.incrementAndGet();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (DataAccessException e) {
+            System.err.println("Failed to write games: " + e.getMessage());
+        }
+    }
+
+    private static GameData copyOf(GameData game) {
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                new ChessGame(game.game()), game.version());
+    }
+
+    private static final class Entry {
+        // Changed only from the game's mailbox
+        volatile GameData game;
+        // Copy as of the last queued write, never changed once set
+        volatile GameData snapshot;
+        volatile long lastAccess = System.nanoTime();
+        // Set by the writer when the stored game turned out to have changed elsewhere
+        volatile boolean conflicted;
+        final AtomicInteger pendingWrites = new AtomicInteger();
+
+        Entry(GameData game, GameData snapshot) {
+            this.game = game;
+            this.snapshot = snapshot;
+        }
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Write {
+        void apply() throws DataAccessException;
+    }
+}
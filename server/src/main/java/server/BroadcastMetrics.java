@@ -0,0 +1,40 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts what broadcasts cost: how many were sent, to how many sessions, how large
+ * their encoded payloads were and how long encoding them took. Sizes count the
+ * payload's characters, which is its size on the wire for the ASCII JSON sent here.
+ */
+public class BroadcastMetrics {
+
+    private final AtomicLong broadcasts = new AtomicLong();
+    private final AtomicLong recipients = new AtomicLong();
+    private final AtomicLong payloadBytes = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong encodeNanos = new AtomicLong();
+
+    public record Stats(long broadcasts, long recipients, long payloadBytes, long bytesSent,
+                        double averagePayloadBytes, double averageEncodeMicros) {}
+
+    /**
+     * @param payloadLength length of the encoded message
+     * @param encodeNanos   time taken to encode it
+     * @param recipients    sessions it was sent to
+     */
+    public void record(int payloadLength, long encodeNanos, int recipients) {
+        broadcasts.incrementAndGet();
+        this.recipients.addAndGet(recipients);
+        payloadBytes.addAndGet(payloadLength);
+        bytesSent.addAndGet((long) payloadLength * recipients);
+        this.encodeNanos.addAndGet(encodeNanos);
+    }
+
+    public Stats stats() {
+        long count = broadcasts.get();
+        double averageBytes = count == 0 ? 0 : (double) payloadBytes.get() / count;
+        double averageMicros = count == 0 ? 0 : encodeNanos.get() / 1000.0 / count;
+        return new Stats(count, recipients.get(), payloadBytes.get(), bytesSent.get(), averageBytes, averageMicros);
+    }
+}
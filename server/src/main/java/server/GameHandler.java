@@ -12,6 +12,8 @@ import spark.Request;
 import spark.Response;
 
 import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 public class GameHandler {
 
@@ -55,7 +57,9 @@ public class GameHandler {
             resp.status(400);
             return "{ \"message\": \"Error: bad request\" }";
         }
-        boolean joinSuccess =  gameService.joinGame(authToken, joinData.gameID(), joinData.playerColor());
+        // Run in the game's mailbox, since the game may be in the middle of a move
+        boolean joinSuccess = inMailbox(joinData.gameID(),
+                () -> gameService.joinGame(authToken, joinData.gameID(), joinData.playerColor()));
 
         if (!joinSuccess) {
             resp.status(403);
@@ -66,5 +70,20 @@ public class GameHandler {
         return "{}";
     }
 
+    private <T> T inMailbox(int gameID, Callable<T> task) throws BadRequestException, UnauthorizedException {
+        try {
+            return Server.gameMailboxes.call(gameID, task).get();
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case BadRequestException badRequest -> throw badRequest;
+                case UnauthorizedException unauthorized -> throw unauthorized;
+                default -> throw new RuntimeException(e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
 
 }
\ No newline at end of file
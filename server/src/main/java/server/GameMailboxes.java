@@ -0,0 +1,86 @@
+package server;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the work for each game one task at a time, in the order it was submitted, while
+ * different games run in parallel. Each game's mailbox is just the future of its last
+ * submitted task; a new task is chained onto it and becomes the new tail. Tasks run on
+ * virtual threads, so a game waiting on I/O does not hold a platform thread, and a game
+ * with nothing queued has no mailbox at all.
+ */
+public class GameMailboxes {
+
+    private final ConcurrentHashMap<Integer, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public record Stats(int busyGames, long submitted, long completed, long failed) {}
+
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * Queues the task behind everything already submitted for the game and returns
+     * without waiting for it.
+     *
+     * @return a future that completes once the task has run; it never completes exceptionally
+     */
+    public CompletableFuture<Void> submit(int gameID, Task task) {
+        submitted.incrementAndGet();
+        CompletableFuture<Void> tail = tails.compute(gameID, (id, previous) -> {
+            CompletableFuture<Void> after = previous != null ? previous : CompletableFuture.completedFuture(null);
+            return after.thenRunAsync(() -> runQuietly(task), executor);
+        });
+        // Drop the mailbox once it drains, unless more work was chained on in the meantime
+        tail.whenComplete((result, error) -> tails.remove(gameID, tail));
+        return tail;
+    }
+
+    /**
+     * Queues the task like submit, for work whose result or failure the caller wants back.
+     * Checked exceptions, such as a request for a game that does not exist, are the task's
+     * answer and are left to the caller; only unchecked ones count as failed tasks.
+     *
+     * @return a future that completes with the task's result, or exceptionally with what it threw
+     */
+    public <T> CompletableFuture<T> call(int gameID, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submit(gameID, () -> {
+            try {
+                result.complete(task.call());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                throw e;
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    public Stats stats() {
+        return new Stats(tails.size(), submitted.get(), completed.get(), failed.get());
+    }
+
+    // A failed task must not break the chain, or every later task for the game would be skipped
+    private void runQuietly(Task task) {
+        try {
+            task.run();
+            completed.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println("Game task failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which game each connected WebSocket session is in, indexed both ways so a
+ * broadcast only visits the sessions of its own game.
+ */
+public class GameSessions {
+
+    // Sessions that have connected but not yet joined a game are in neither map
+    private final ConcurrentHashMap<Integer, Set<Session>> sessionsByGame = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Session, Integer> gameBySession = new ConcurrentHashMap<>();
+    // Sessions whose client asked for moves as MOVE_MADE; the rest get the whole game after each move
+    private final Set<Session> moveDeltaSessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Puts the session in the given game, taking it out of any game it was in before.
+     *
+     * @param moveDeltas whether the session's client asked for moves as MOVE_MADE
+     */
+    public void join(Session session, int gameID, boolean moveDeltas) {
+        if (moveDeltas) {
+            moveDeltaSessions.add(session);
+        }
+        else {
+            moveDeltaSessions.remove(session);
+        }
+        Integer previous = gameBySession.put(session, gameID);
+        if (previous != null && previous != gameID) {
+            removeFromGame(session, previous);
+        }
+        // Added inside compute so it can not land in a set that removeFromGame is dropping
+        sessionsByGame.compute(gameID, (id, sessions) -> {
+            if (sessions == null) {
+                sessions = ConcurrentHashMap.newKeySet();
+            }
+            sessions.add(session);
+            return sessions;
+        });
+    }
+
+    /**
+     * Takes the session out of its game, if it is in one.
+     */
+    public void leave(Session session) {
+        moveDeltaSessions.remove(session);
+        Integer gameID = gameBySession.remove(session);
+        if (gameID != null) {
+            removeFromGame(session, gameID);
+        }
+    }
+
+    /**
+     * @return the game the session is in, or null if it has not joined one
+     */
+    public Integer gameOf(Session session) {
+        return gameBySession.get(session);
+    }
+
+    public boolean wantsMoveDeltas(Session session) {
+        return moveDeltaSessions.contains(session);
+    }
+
+    /**
+     * @return a live view of the sessions in the game; empty if there are none
+     */
+    public Set<Session> sessionsIn(int gameID) {
+        Set<Session> sessions = sessionsByGame.get(gameID);
+        return sessions != null ? sessions : Collections.emptySet();
+    }
+
+    public void clear() {
+        sessionsByGame.clear();
+        gameBySession.clear();
+        moveDeltaSessions.clear();
+    }
+
+    // Drops the game's set once its last session leaves, unless someone joined in the meantime
+    private void removeFromGame(Session session, int gameID) {
+        sessionsByGame.computeIfPresent(gameID, (id, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+}
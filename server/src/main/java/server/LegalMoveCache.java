@@ -0,0 +1,101 @@
+package server;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of every valid move in a position, keyed by the game's position hash.
+ * Each entry keeps the position it was made for, and a hit is only used if that is the
+ * position asked about, so two positions whose hashes collide never share moves.
+ * <p>
+ * Entries are split across segments by hash, each an access-ordered LinkedHashMap
+ * under its own lock, so lookups for different positions rarely contend and each
+ * segment evicts its least recently used position once full.
+ */
+public class LegalMoveCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong collisions = new AtomicLong();
+
+    public record Stats(long hits, long misses, long evictions, long collisions, int size) {}
+
+    private record Entry(ChessBoard board, ChessGame.TeamColor turn, Collection<ChessMove> moves) {
+        boolean isFor(ChessGame game) {
+            return turn == game.getTeamTurn() && board.equals(game.getBoard());
+        }
+    }
+
+    public LegalMoveCache(int capacity) {
+        int segmentCapacity = Math.max(1, capacity / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * @param game position to get moves for; it is left unchanged
+     * @return every valid move for the team whose turn it is, empty if it has none
+     */
+    public Collection<ChessMove> validMoves(ChessGame game) {
+        long key = game.getPositionHash();
+        Segment segment = segments[(int) (key ^ (key >>> 32)) & (SEGMENTS - 1)];
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if (entry != null) {
+                if (entry.isFor(game)) {
+                    hits.incrementAndGet();
+                    return entry.moves();
+                }
+                collisions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        // Generated outside the lock; if two threads miss on the same position both results are equal
+        Collection<ChessMove> moves = List.copyOf(game.allValidMoves());
+        Entry entry = new Entry(new ChessBoard(game.getBoard()), game.getTeamTurn(), moves);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+        return moves;
+    }
+
+    public Stats stats() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new Stats(hits.get(), misses.get(), evictions.get(), collisions.get(), size);
+    }
+
+    private class Segment extends LinkedHashMap<Long, Entry> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -1,19 +1,27 @@
 package server;
 
+import com.google.gson.Gson;
 import dataAccess.*;
-import org.eclipse.jetty.websocket.api.Session;
 import service.GameService;
 import service.UserService;
 import spark.*;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class Server {
 
 
+    PasswordHasher passwordHasher;
     UserDAO userDAO;
     AuthDAO authDAO;
+    CachingAuthDAO authCache;
+    SignedTokenAuthDAO signedTokens;
     GameDAO gameDAO;
+    SQLGameDAO storedGameDAO;
+    WriteBehindGameDAO activeGameDAO;
 
     static UserService userService;
     static GameService gameService;
@@ -21,16 +29,39 @@ public class Server {
     UserHandler userHandler;
     GameHandler gameHandler;
 
-    // {Session: gameID}
-    static ConcurrentHashMap<Session, Integer> gameSessions = new ConcurrentHashMap<>();
+    static GameSessions gameSessions = new GameSessions();
 
-    public Server() {
+    static LegalMoveCache legalMoveCache = new LegalMoveCache(10_000);
+
+    static BroadcastMetrics broadcastMetrics = new BroadcastMetrics();
+
+    static SessionOutboxes sessionOutboxes = new SessionOutboxes(64);
 
-        userDAO = new SQLUserDAO();
-        authDAO = new SQLAuthDAO();
-        gameDAO = new SQLGameDAO();
+    static GameMailboxes gameMailboxes = new GameMailboxes();
+
+    public Server() {
 
-        userService = new UserService(userDAO, authDAO);
+        passwordHasher = new PasswordHasher();
+        userDAO = new SQLUserDAO(passwordHasher);
+        storedGameDAO = new SQLGameDAO();
+        activeGameDAO = new WriteBehindGameDAO(storedGameDAO);
+        activeGameDAO.start();
+        gameDAO = activeGameDAO;
+
+        // auth.tokens=signed checks tokens by their signature instead of looking them up. Logouts
+        // are only seen by the server that handled them, so with several servers a logged-out
+        // token works on the others for up to auth.tokenTtlSeconds
+        if (DatabaseManager.getProperty("auth.tokens", "stored").equals("signed")) {
+            signedTokens = new SignedTokenAuthDAO(tokenSecret(),
+                    DatabaseManager.getIntProperty("auth.tokenTtlSeconds", 3_600));
+            authDAO = signedTokens;
+            userService = new UserService(userDAO, authDAO, signedTokens);
+        }
+        else {
+            authCache = new CachingAuthDAO(new SQLAuthDAO());
+            authDAO = authCache;
+            userService = new UserService(userDAO, authDAO);
+        }
         gameService = new GameService(gameDAO, authDAO);
 
         userHandler = new UserHandler(userService);
@@ -49,6 +80,10 @@ public class Server {
         Spark.webSocket("/connect", WebsocketHandler.class);
 
         Spark.delete("/db", this::clear);
+        // Internal counters, so only served when metrics.enabled=true and then only to a logged-in user
+        if (DatabaseManager.getProperty("metrics.enabled", "false").equals("true")) {
+            Spark.get("/metrics", this::metrics);
+        }
         Spark.post("/user", userHandler::register);
         Spark.post("/session", userHandler::login);
         Spark.delete("/session", userHandler::logout);
@@ -59,6 +94,7 @@ public class Server {
 
         Spark.exception(BadRequestException.class, this::badRequestExceptionHandler);
         Spark.exception(UnauthorizedException.class, this::unauthorizedExceptionHandler);
+        Spark.exception(ServiceUnavailableException.class, this::serviceUnavailableExceptionHandler);
         Spark.exception(Exception.class, this::genericExceptionHandler);
 
 
@@ -69,6 +105,12 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        try {
+            activeGameDAO.close();
+        } catch (DataAccessException e) {
+            System.err.println("Failed to write games: " + e.getMessage());
+        }
+        DatabaseManager.closePool();
     }
 
     public void clearDB() {
@@ -84,6 +126,44 @@ public class Server {
         return "{}";
     }
 
+    private Object metrics(Request req, Response resp) throws UnauthorizedException {
+        userService.getAuth(req.headers("authorization"));
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("legalMoveCache", legalMoveCache.stats());
+        metrics.put("broadcasts", broadcastMetrics.stats());
+        metrics.put("outboundQueues", sessionOutboxes.stats());
+        metrics.put("gameMailboxes", gameMailboxes.stats());
+        metrics.put("connectionPool", DatabaseManager.poolStats());
+        metrics.put("passwordHashing", passwordHasher.stats());
+        if (authCache != null) {
+            metrics.put("authCache", authCache.stats());
+        }
+        if (signedTokens != null) {
+            metrics.put("revokedTokens", signedTokens.revokedCount());
+        }
+        metrics.put("activeGames", activeGameDAO.stats());
+        metrics.put("gameLoads", storedGameDAO.stats());
+        metrics.put("moveBatches", storedGameDAO.moveWriterStats());
+
+        resp.status(200);
+        return new Gson().toJson(metrics);
+    }
+
+    /*
+     * Servers that should accept each other's tokens need the same auth.secret. Without one,
+     * a random secret is used and tokens stop working when the server restarts.
+     */
+    private static byte[] tokenSecret() {
+        String secret = DatabaseManager.getProperty("auth.secret", null);
+        if (secret != null) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+
     private void badRequestExceptionHandler(BadRequestException ex, Request req, Response resp) {
         resp.status(400);
         resp.body("{ \"message\": \"Error: bad request\" }");
@@ -94,6 +174,12 @@ public class Server {
         resp.body("{ \"message\": \"Error: unauthorized\" }");
     }
 
+    private void serviceUnavailableExceptionHandler(ServiceUnavailableException ex, Request req, Response resp) {
+        resp.status(503);
+        resp.header("Retry-After", "1");
+        resp.body("{ \"message\": \"Error: server busy, try again\" }");
+    }
+
     private void genericExceptionHandler(Exception ex, Request req, Response resp) {
         resp.status(500);
         resp.body("{ \"message\": \"Error: %s\" }".formatted(ex.getMessage()));
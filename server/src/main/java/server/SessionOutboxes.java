@@ -0,0 +1,162 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends messages to WebSocket sessions without blocking the caller. Each session has a
+ * bounded queue of outgoing payloads and at most one asynchronous send in flight, so a
+ * client that reads slowly only backs up its own queue.
+ * <p>
+ * When a LOAD_GAME is queued right behind another LOAD_GAME that is still waiting, the
+ * older one is dropped, since the client only needs the latest board. A LOAD_GAME with
+ * other messages queued after it is kept, so moves sent after it are never delivered
+ * ahead of the board they apply to. If a queue is still full after that, the client is
+ * too far behind to catch up and is disconnected.
+ */
+public class SessionOutboxes {
+
+    private final int capacity;
+    private final ConcurrentHashMap<Session, Outbox> outboxes = new ConcurrentHashMap<>();
+
+    private final AtomicInteger deepestQueue = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong disconnected = new AtomicLong();
+
+    public record Stats(int sessions, int queued, int deepestQueue, long sent, long coalesced, long failed,
+                        long disconnected) {}
+
+    /**
+     * @param capacity most payloads a session may have waiting before it is disconnected
+     */
+    public SessionOutboxes(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queues a payload for the session and returns straight away.
+     *
+     * @param loadGame whether the payload is a LOAD_GAME, which a LOAD_GAME queued right after it replaces
+     */
+    public void send(Session session, String payload, boolean loadGame) {
+        // A closed session's outbox has been removed, and must not be made again
+        if (!session.isOpen()) {
+            return;
+        }
+        outboxes.computeIfAbsent(session, Outbox::new).send(new Outgoing(payload, loadGame));
+    }
+
+    /**
+     * Drops the session's queue, for when it has closed.
+     */
+    public void remove(Session session) {
+        Outbox outbox = outboxes.remove(session);
+        if (outbox != null) {
+            outbox.discard();
+        }
+    }
+
+    public Stats stats() {
+        int queued = 0;
+        for (Outbox outbox : outboxes.values()) {
+            queued += outbox.depth();
+        }
+        return new Stats(outboxes.size(), queued, deepestQueue.get(), sent.get(), coalesced.get(), failed.get(),
+                disconnected.get());
+    }
+
+    private record Outgoing(String payload, boolean loadGame) {}
+
+    private class Outbox implements WriteCallback {
+        private final Session session;
+        private final ArrayDeque<Outgoing> queue = new ArrayDeque<>();
+        private boolean sending;
+
+        Outbox(Session session) {
+            this.session = session;
+        }
+
+        void send(Outgoing outgoing) {
+            synchronized (this) {
+                if (outgoing.loadGame() && !queue.isEmpty() && queue.peekLast().loadGame()) {
+                    queue.pollLast();
+                    coalesced.incrementAndGet();
+                }
+                if (queue.size() < capacity) {
+                    queue.add(outgoing);
+                    deepestQueue.accumulateAndGet(queue.size(), Math::max);
+                    outgoing = null;
+                }
+                else {
+                    queue.clear();
+                }
+            }
+            if (outgoing != null) {
+                disconnectSlowConsumer();
+                return;
+            }
+            sendNext();
+        }
+
+        synchronized int depth() {
+            return queue.size();
+        }
+
+        synchronized void discard() {
+            queue.clear();
+        }
+
+        @Override
+        public void writeSuccess() {
+            sent.incrementAndGet();
+            synchronized (this) {
+                sending = false;
+            }
+            sendNext();
+        }
+
+        @Override
+        public void writeFailed(Throwable error) {
+            failed.incrementAndGet();
+            synchronized (this) {
+                sending = false;
+                queue.clear();
+            }
+            // Sends fail once the session has closed; drop the outbox if onClose has not already
+            if (!session.isOpen()) {
+                outboxes.remove(session, this);
+            }
+        }
+
+        // Starts the next send unless one is already in flight; Jetty may call back before sendString returns
+        private void sendNext() {
+            Outgoing next;
+            synchronized (this) {
+                if (sending || queue.isEmpty()) {
+                    return;
+                }
+                next = queue.poll();
+                sending = true;
+            }
+            try {
+                session.getRemote().sendString(next.payload(), this);
+            } catch (RuntimeException e) {
+                writeFailed(e);
+            }
+        }
+
+        private void disconnectSlowConsumer() {
+            disconnected.incrementAndGet();
+            outboxes.remove(session, this);
+            session.close(StatusCode.POLICY_VIOLATION, "Too far behind on game updates");
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import dataAccess.BadRequestException;
 import dataAccess.DataAccessException;
+import dataAccess.ServiceUnavailableException;
 import dataAccess.UnauthorizedException;
 import model.AuthData;
 import model.UserData;
@@ -21,7 +22,7 @@ public class UserHandler {
         this.userService = userService;
     }
 
-    public Object register(Request req, Response resp) throws BadRequestException {
+    public Object register(Request req, Response resp) throws BadRequestException, ServiceUnavailableException {
 
         UserData userData = new Gson().fromJson(req.body(), UserData.class);
 
@@ -39,7 +40,8 @@ public class UserHandler {
         }
     }
 
-    public Object login(Request req, Response resp) throws UnauthorizedException, BadRequestException {
+    public Object login(Request req, Response resp) throws UnauthorizedException, BadRequestException,
+            ServiceUnavailableException {
 
 
         UserData userData = new Gson().fromJson(req.body(), UserData.class);
@@ -2,35 +2,35 @@ package server;
 
 import chess.ChessGame;
 import chess.InvalidMoveException;
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import dataAccess.BadRequestException;
 import dataAccess.UnauthorizedException;
 import model.AuthData;
 import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.*;
+import webSocketMessages.WebSocketJson;
 import webSocketMessages.serverMessages.Error;
 import webSocketMessages.serverMessages.LoadGame;
+import webSocketMessages.serverMessages.MoveMade;
 import webSocketMessages.serverMessages.Notification;
 import webSocketMessages.serverMessages.ServerMessage;
 import webSocketMessages.userCommands.*;
 
 import java.io.IOException;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 @WebSocket
 public class WebsocketHandler {
 
     @OnWebSocketConnect
     public void onConnect(Session session) throws Exception {
-        Server.gameSessions.put(session, 0);
     }
 
     @OnWebSocketClose
     public void onClose(Session session, int statusCode, String reason) {
-        Server.gameSessions.remove(session);
+        Server.gameSessions.leave(session);
+        Server.sessionOutboxes.remove(session);
     }
 
     @OnWebSocketError
@@ -40,29 +40,53 @@ public class WebsocketHandler {
 
     @OnWebSocketMessage
     public void onMessage(Session session, String message) throws Exception {
-        System.out.printf("Received: %s\n", message);
-
-        if (message.contains("\"commandType\":\"JOIN_PLAYER\"")) {
-            JoinPlayer command = new Gson().fromJson(message, JoinPlayer.class);
-            Server.gameSessions.replace(session, command.getGameID());
-            handleJoinPlayer(session, command);
-        }
-        else if (message.contains("\"commandType\":\"JOIN_OBSERVER\"")) {
-            JoinObserver command = new Gson().fromJson(message, JoinObserver.class);
-            Server.gameSessions.replace(session, command.getGameID());
-            handleJoinObserver(session, command);
-        }
-        else if (message.contains("\"commandType\":\"MAKE_MOVE\"")) {
-            MakeMove command = new Gson().fromJson(message, MakeMove.class);
-            handleMakeMove(session, command);
+        UserGameCommand command;
+        try {
+            command = WebSocketJson.readCommand(message);
+        } catch (JsonParseException e) {
+            sendError(session, new Error("Error: unrecognized command"));
+            return;
         }
-        else if (message.contains("\"commandType\":\"LEAVE\"")) {
-            Leave command = new Gson().fromJson(message, Leave.class);
-            handleLeave(session, command);
+
+        int gameID = switch (command) {
+            case JoinPlayer joinPlayer -> joinPlayer.getGameID();
+            case JoinObserver joinObserver -> joinObserver.getGameID();
+            case MakeMove makeMove -> makeMove.getGameID();
+            case Leave leave -> leave.getGameID();
+            case Resign resign -> resign.getGameID();
+            case Resync resync -> resync.getGameID();
+            default -> 0;
+        };
+        // Commands for one game run one at a time, in order, so each sees the state the previous one left
+        Server.gameMailboxes.submit(gameID, () -> handleCommand(session, command));
+    }
+
+    private void handleCommand(Session session, UserGameCommand command) throws IOException {
+        switch (command) {
+            case JoinPlayer joinPlayer -> {
+                joinSession(session, joinPlayer.getGameID(), joinPlayer.wantsMoveDeltas());
+                handleJoinPlayer(session, joinPlayer);
+            }
+            case JoinObserver joinObserver -> {
+                joinSession(session, joinObserver.getGameID(), joinObserver.wantsMoveDeltas());
+                handleJoinObserver(session, joinObserver);
+            }
+            case MakeMove makeMove -> handleMakeMove(session, makeMove);
+            case Leave leave -> handleLeave(session, leave);
+            case Resign resign -> handleResign(session, resign);
+            case Resync resync -> handleResync(session, resync);
+            default -> sendError(session, new Error("Error: unrecognized command"));
         }
-        else if (message.contains("\"commandType\":\"RESIGN\"")) {
-            Resign command = new Gson().fromJson(message, Resign.class);
-            handleResign(session, command);
+    }
+
+    /*
+     * The client may have disconnected while its join waited in the mailbox. onClose has then
+     * already run its leave, so the join is undone here or the closed session would stay in the game.
+     */
+    private void joinSession(Session session, int gameID, boolean moveDeltas) {
+        Server.gameSessions.join(session, gameID, moveDeltas);
+        if (!session.isOpen()) {
+            Server.gameSessions.leave(session);
         }
     }
 
@@ -136,31 +160,50 @@ public class WebsocketHandler {
             }
 
             if (game.game().getTeamTurn().equals(userColor)) {
-                game.game().makeMove(command.getMove());
+                // Played on a copy, so the shared game only changes once the move has been stored
+                ChessGame played = new ChessGame(game.game());
+                played.makeMove(command.getMove(), Server.legalMoveCache.validMoves(played));
 
                 Notification notif;
+                MoveMade.Status status;
                 ChessGame.TeamColor opponentColor = userColor == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+                // The opponent is now to move, so the cached moves are theirs
+                boolean opponentCanMove = !Server.legalMoveCache.validMoves(played).isEmpty();
+                boolean opponentInCheck = played.isInCheck(opponentColor);
 
-                if (game.game().isInCheckmate(opponentColor)) {
+                if (!opponentCanMove && opponentInCheck) {
                     notif = new Notification("Checkmate! %s wins!".formatted(auth.username()));
-                    game.game().setGameOver(true);
+                    status = MoveMade.Status.CHECKMATE;
+                    played.setGameOver(true);
                 }
-                else if (game.game().isInStalemate(opponentColor)) {
+                else if (!opponentCanMove) {
                     notif = new Notification("Stalemate caused by %s's move! It's a tie!".formatted(auth.username()));
-                    game.game().setGameOver(true);
+                    status = MoveMade.Status.STALEMATE;
+                    played.setGameOver(true);
                 }
-                else if (game.game().isInCheck(opponentColor)) {
+                else if (opponentInCheck) {
                     notif = new Notification("A move has been made by %s, %s is now in check!".formatted(auth.username(), opponentColor.toString()));
+                    status = MoveMade.Status.CHECK;
                 }
                 else {
                     notif = new Notification("A move has been made by %s".formatted(auth.username()));
+                    status = MoveMade.Status.ONGOING;
                 }
-                broadcastMessage(session, notif);
 
-                Server.gameService.updateGame(auth.authToken(), game);
+                GameData moved = new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                        played, game.version());
+                try {
+                    // Stores the move and makes the copy the game everyone reads from here on
+                    Server.gameService.recordMove(auth.authToken(), moved, command.getMove());
+                } catch (BadRequestException e) {
+                    sendError(session, new Error("Error: the move could not be saved, try again"));
+                    return;
+                }
 
-                LoadGame load = new LoadGame(game.game());
-                broadcastMessage(session, load, true);
+                broadcastMessage(session, notif);
+                LoadGame load = new LoadGame(played);
+                MoveMade moveMade = new MoveMade(game.gameID(), command.getMove(), status, played.getPositionHash());
+                broadcastMove(session, load, moveMade);
             }
             else {
                 sendError(session, new Error("Error: it is not your turn"));
@@ -171,8 +214,7 @@ public class WebsocketHandler {
         } catch (BadRequestException e) {
             sendError(session, new Error("Error: invalid game"));
         } catch (InvalidMoveException e) {
-            System.out.println("****** error: " + e.getMessage() + "  " + command.getMove().toString());
-            sendError(session, new Error("Error: invalid move (you might need to specify a promotion piece)"));
+            sendError(session, new Error("Error: " + e.getMessage()));
         }
     }
 
@@ -207,8 +249,14 @@ public class WebsocketHandler {
                 return;
             }
 
-            game.game().setGameOver(true);
-            Server.gameService.updateGame(auth.authToken(), game);
+            // Re-read on conflict, so a player joining at the same moment does not lose the resignation.
+            // The change goes on a copy, so a lost attempt leaves the cached game as it was
+            Server.gameService.updateGame(auth.authToken(), game.gameID(), current -> {
+                ChessGame over = new ChessGame(current.game());
+                over.setGameOver(true);
+                return new GameData(current.gameID(), current.whiteUsername(), current.blackUsername(),
+                        current.gameName(), over, current.version());
+            });
             Notification notif = new Notification("%s has forfeited, %s wins!".formatted(auth.username(), opponentUsername));
             broadcastMessage(session, notif, true);
         } catch (UnauthorizedException e) {
@@ -218,31 +266,98 @@ public class WebsocketHandler {
         }
     }
 
+    // A client whose copy of the game no longer matches the server's asks for the whole game again
+    private void handleResync(Session session, Resync command) throws IOException {
+        try {
+            GameData game = Server.gameService.getGameData(command.getAuthString(), command.getGameID());
+            sendMessage(session, new LoadGame(game.game()));
+        } catch (UnauthorizedException e) {
+            sendError(session, new Error("Error: Not authorized"));
+        } catch (BadRequestException e) {
+            sendError(session, new Error("Error: Not a valid game"));
+        }
+    }
+
     // Send the notification to all clients on the current game except the currSession
     public void broadcastMessage(Session currSession, ServerMessage message) throws IOException {
         broadcastMessage(currSession, message, false);
     }
 
-    // Send the notification to all clients on the current game
+    // Send the notification to all clients on the current game, encoding it once for all of them
     public void broadcastMessage(Session currSession, ServerMessage message, boolean toSelf) throws IOException {
-        System.out.printf("Broadcasting (toSelf: %s): %s%n", toSelf, new Gson().toJson(message));
-        for (Session session : Server.gameSessions.keySet()) {
-            boolean inAGame = Server.gameSessions.get(session) != 0;
-            boolean sameGame = Server.gameSessions.get(session).equals(Server.gameSessions.get(currSession));
-            boolean isSelf = session == currSession;
-            if ((toSelf || !isSelf) && inAGame && sameGame) {
-                sendMessage(session, message);
+        long encodeStart = System.nanoTime();
+        String payload = WebSocketJson.write(message);
+        long encodeNanos = System.nanoTime() - encodeStart;
+
+        int recipients = 0;
+        Integer gameID = Server.gameSessions.gameOf(currSession);
+        if (gameID != null) {
+            for (Session session : Server.gameSessions.sessionsIn(gameID)) {
+                if (toSelf || session != currSession) {
+                    sendPayload(session, payload, message);
+                    recipients++;
+                }
+            }
+        }
+        Server.broadcastMetrics.record(payload.length(), encodeNanos, recipients);
+    }
+
+    /*
+     * Sends the move to every client on the current game, the mover included. Clients that asked for
+     * deltas when they joined get the MOVE_MADE; the rest get the whole game, as they always have.
+     * Each message is encoded at most once.
+     */
+    private void broadcastMove(Session currSession, LoadGame load, MoveMade moveMade) {
+        Integer gameID = Server.gameSessions.gameOf(currSession);
+        if (gameID == null) {
+            return;
+        }
+        String loadPayload = null;
+        String movePayload = null;
+        long loadEncodeNanos = 0;
+        long moveEncodeNanos = 0;
+        int loadRecipients = 0;
+        int moveRecipients = 0;
+        for (Session session : Server.gameSessions.sessionsIn(gameID)) {
+            if (Server.gameSessions.wantsMoveDeltas(session)) {
+                if (movePayload == null) {
+                    long encodeStart = System.nanoTime();
+                    movePayload = WebSocketJson.write(moveMade);
+                    moveEncodeNanos = System.nanoTime() - encodeStart;
+                }
+                sendPayload(session, movePayload, moveMade);
+                moveRecipients++;
+            }
+            else {
+                if (loadPayload == null) {
+                    long encodeStart = System.nanoTime();
+                    loadPayload = WebSocketJson.write(load);
+                    loadEncodeNanos = System.nanoTime() - encodeStart;
+                }
+                sendPayload(session, loadPayload, load);
+                loadRecipients++;
             }
         }
+        if (loadPayload != null) {
+            Server.broadcastMetrics.record(loadPayload.length(), loadEncodeNanos, loadRecipients);
+        }
+        if (movePayload != null) {
+            Server.broadcastMetrics.record(movePayload.length(), moveEncodeNanos, moveRecipients);
+        }
     }
 
     public void sendMessage(Session session, ServerMessage message) throws IOException {
-        session.getRemote().sendString(new Gson().toJson(message));
+        sendPayload(session, WebSocketJson.write(message), message);
+    }
+
+    // Queued rather than sent here, so a slow client never holds up the caller
+    private void sendPayload(Session session, String payload, ServerMessage message) {
+        boolean loadGame = message.getServerMessageType() == ServerMessage.ServerMessageType.LOAD_GAME;
+        Server.sessionOutboxes.send(session, payload, loadGame);
     }
 
     private void sendError(Session session, Error error) throws IOException {
-        System.out.printf("Error: %s%n", new Gson().toJson(error));
-        session.getRemote().sendString(new Gson().toJson(error));
+        sendPayload(session, WebSocketJson.write(error), error);
     }
 
     private ChessGame.TeamColor getTeamColor(String username, GameData game) {
@@ -3,6 +3,7 @@ package service;
 
 import chess.ChessBoard;
 import chess.ChessGame;
+import chess.ChessMove;
 import dataAccess.*;
 import model.AuthData;
 import model.GameData;
@@ -10,9 +11,13 @@ import model.GameData;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.UnaryOperator;
 
 public class GameService {
 
+    // Attempts at a read-modify-write before giving up on a game that keeps changing underneath it
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+
     GameDAO gameDAO;
     AuthDAO authDAO;
 
@@ -44,6 +49,33 @@ public class GameService {
         }
     }
 
+    /**
+     * Reads the game, applies the change and writes it back, starting over from a fresh
+     * read if someone else updated the game in between.
+     *
+     * @param change given the current game, returns the game to store; it may be called more than once
+     * @return the game as stored
+     */
+    public GameData updateGame(String authToken, int gameID, UnaryOperator<GameData> change) throws UnauthorizedException, BadRequestException {
+        try {
+            authDAO.getAuth(authToken);
+        } catch (DataAccessException e) {
+            throw new UnauthorizedException();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                GameData updated = change.apply(gameDAO.getGame(gameID));
+                gameDAO.updateGame(updated);
+                return updated;
+            } catch (ConcurrentUpdateException e) {
+                if (attempt == MAX_UPDATE_ATTEMPTS) throw new BadRequestException(e.getMessage());
+            } catch (DataAccessException e) {
+                throw new BadRequestException(e.getMessage());
+            }
+        }
+    }
+
     public void updateGame(String authToken, GameData gameData) throws UnauthorizedException, BadRequestException {
         try {
             authDAO.getAuth(authToken);
@@ -58,6 +90,20 @@ public class GameService {
         }
     }
 
+    public void recordMove(String authToken, GameData gameData, ChessMove move) throws UnauthorizedException, BadRequestException {
+        try {
+            authDAO.getAuth(authToken);
+        } catch (DataAccessException e) {
+            throw new UnauthorizedException();
+        }
+
+        try {
+            gameDAO.appendMove(gameData, move);
+        } catch (DataAccessException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+    }
+
     public int createGame(String authToken, String gameName) throws UnauthorizedException, BadRequestException {
         try {
             authDAO.getAuth(authToken);
@@ -101,29 +147,33 @@ public class GameService {
             throw new UnauthorizedException();
         }
 
-        try {
-            gameData = gameDAO.getGame(gameID);
-        } catch (DataAccessException e) {
-            throw new BadRequestException(e.getMessage());
-        }
-
-        String whiteUser = gameData.whiteUsername();
-        String blackUser = gameData.blackUsername();
-
-        if (Objects.equals(color, "WHITE")) {
-            if (whiteUser != null && !whiteUser.equals(authData.username())) return false; // Spot taken by someone else
-            else whiteUser = authData.username();
-        } else if (Objects.equals(color, "BLACK")) {
-            if (blackUser != null && !blackUser.equals(authData.username())) return false; // Spot taken by someone else
-            else blackUser = authData.username();
-        } else if (color != null) throw new BadRequestException("%s is not a valid team color".formatted(color));
-
-        try {
-            gameDAO.updateGame(new GameData(gameID, whiteUser, blackUser, gameData.gameName(), gameData.game()));
-        } catch (DataAccessException e) {
-            throw new BadRequestException(e.getMessage());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                gameData = gameDAO.getGame(gameID);
+            } catch (DataAccessException e) {
+                throw new BadRequestException(e.getMessage());
+            }
+
+            String whiteUser = gameData.whiteUsername();
+            String blackUser = gameData.blackUsername();
+
+            if (Objects.equals(color, "WHITE")) {
+                if (whiteUser != null && !whiteUser.equals(authData.username())) return false; // Spot taken by someone else
+                else whiteUser = authData.username();
+            } else if (Objects.equals(color, "BLACK")) {
+                if (blackUser != null && !blackUser.equals(authData.username())) return false; // Spot taken by someone else
+                else blackUser = authData.username();
+            } else if (color != null) throw new BadRequestException("%s is not a valid team color".formatted(color));
+
+            try {
+                gameDAO.updateGame(new GameData(gameID, whiteUser, blackUser, gameData.gameName(), gameData.game(), gameData.version()));
+                return true;
+            } catch (ConcurrentUpdateException e) { // Someone else joined or changed the game first, so check the spot again
+                if (attempt == MAX_UPDATE_ATTEMPTS) throw new BadRequestException(e.getMessage());
+            } catch (DataAccessException e) {
+                throw new BadRequestException(e.getMessage());
+            }
         }
-        return true;
     }
 
     public void clear() {
@@ -10,27 +10,36 @@ public class UserService {
 
     UserDAO userDAO;
     AuthDAO authDAO;
+    TokenIssuer tokenIssuer;
 
     public UserService(UserDAO userDAO, AuthDAO authDAO) {
+        this(userDAO, authDAO, username -> UUID.randomUUID().toString());
+    }
+
+    /**
+     * @param tokenIssuer creates the tokens for new sessions; authDAO must be able to check them
+     */
+    public UserService(UserDAO userDAO, AuthDAO authDAO, TokenIssuer tokenIssuer) {
         this.userDAO = userDAO;
         this.authDAO = authDAO;
+        this.tokenIssuer = tokenIssuer;
     }
 
-    public AuthData createUser(UserData userData) throws BadRequestException {
+    public AuthData createUser(UserData userData) throws BadRequestException, ServiceUnavailableException {
 
         try {
             userDAO.createUser(userData);
         } catch (DataAccessException e) {
             throw new BadRequestException(e.getMessage());
         }
-        String authToken = UUID.randomUUID().toString();
+        String authToken = tokenIssuer.issue(userData.username());
         AuthData authData = new AuthData(userData.username(), authToken);
         authDAO.addAuth(authData);
 
         return authData;
     }
 
-    public AuthData loginUser(UserData userData) throws UnauthorizedException {
+    public AuthData loginUser(UserData userData) throws UnauthorizedException, ServiceUnavailableException {
         boolean userAuthenticated;
         try {
             userAuthenticated = userDAO.authenticateUser(userData.username(), userData.password());
@@ -39,7 +48,7 @@ public class UserService {
         }
 
         if (userAuthenticated) {
-            String authToken = UUID.randomUUID().toString();
+            String authToken = tokenIssuer.issue(userData.username());
             AuthData authData = new AuthData(userData.username(), authToken);
             authDAO.addAuth(authData);
             return authData;
@@ -0,0 +1,52 @@
+package dataAccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class CachingAuthDAOTests {
+
+    private MemoryAuthDAO stored;
+    private CachingAuthDAO auths;
+
+    @BeforeEach
+    public void setup() {
+        stored = new MemoryAuthDAO();
+        auths = new CachingAuthDAO(stored, 60, 100);
+    }
+
+    @Test
+    @DisplayName("Missing Token Is Not Found")
+    public void missingToken() {
+        Assertions.assertThrows(DataAccessException.class, () -> auths.getAuth(null),
+                "A null token did not fail as a missing token");
+        Assertions.assertDoesNotThrow(() -> auths.deleteAuth(null), "Deleting a null token failed");
+        Assertions.assertEquals(0, auths.stats().size(), "A null token was cached");
+    }
+
+    @Test
+    @DisplayName("Cached Token Is Served Without the Store")
+    public void cachedToken() throws DataAccessException {
+        AuthData auth = new AuthData("user", "token");
+        auths.addAuth(auth);
+        stored.clear();
+
+        Assertions.assertEquals(auth, auths.getAuth("token"), "Cached token was not returned");
+        Assertions.assertEquals(1, auths.stats().hits(), "Lookup did not hit the cache");
+    }
+
+    @Test
+    @DisplayName("Deleted Token Is Not Cached Again")
+    public void deletedToken() {
+        AuthData auth = new AuthData("user", "token");
+        auths.addAuth(auth);
+        auths.deleteAuth("token");
+        // As a lookup racing the delete would still have read it
+        stored.addAuth(auth);
+
+        Assertions.assertThrows(DataAccessException.class, () -> auths.getAuth("token"),
+                "Deleted token was still accepted");
+    }
+}
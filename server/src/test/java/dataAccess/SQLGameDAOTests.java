@@ -0,0 +1,85 @@
+package dataAccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.InvalidMoveException;
+import model.GameData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs against the in-memory H2 database set up by the test db.properties.
+ */
+public class SQLGameDAOTests {
+
+    private SQLGameDAO games;
+
+    @BeforeEach
+    public void setup() {
+        // Snapshot every 4 plies
+        games = new SQLGameDAO(4, 1_000);
+        games.clear();
+    }
+
+    @Test
+    @DisplayName("Moves Replay Onto the Last Snapshot")
+    public void replayOntoSnapshot() throws Exception {
+        GameData game = createGame(1);
+        play(game, move(2, 5, 4, 5), move(7, 5, 5, 5), move(1, 7, 3, 6), move(8, 2, 6, 3),
+                move(1, 6, 4, 3), move(8, 7, 6, 6));
+
+        GameData loaded = games.getGame(1);
+
+        Assertions.assertEquals(game.game(), loaded.game(), "Loaded game does not match the one played");
+        Assertions.assertEquals(6, loaded.game().getPly(), "Loaded game is at the wrong ply");
+        Assertions.assertEquals(2, games.stats().longestReplay(), "Moves after the snapshot were not replayed");
+    }
+
+    @Test
+    @DisplayName("Rejected Move Does Not Lose Other Games' Moves")
+    public void rejectedMoveKeepsOthers() throws Exception {
+        GameData first = createGame(1);
+        GameData second = createGame(2);
+        play(first, move(2, 5, 4, 5));
+
+        Assertions.assertThrows(DataAccessException.class, () -> games.appendMove(first, move(2, 5, 4, 5)),
+                "Logging the same ply twice was accepted");
+        play(second, move(2, 4, 4, 4), move(7, 4, 5, 4));
+
+        Assertions.assertEquals(1, games.moveWriterStats().rejectedRows(), "Duplicate ply was not rejected");
+        Assertions.assertEquals(second.game(), games.getGame(2).game(), "Other game's moves were lost");
+        Assertions.assertEquals(first.game(), games.getGame(1).game(), "Rejected ply replaced the logged one");
+    }
+
+    @Test
+    @DisplayName("Stale Update Is Rejected")
+    public void staleUpdate() throws DataAccessException {
+        GameData game = createGame(1);
+        GameData joined = new GameData(1, "white", null, game.gameName(), game.game(), game.version());
+        games.updateGame(joined);
+
+        Assertions.assertThrows(ConcurrentUpdateException.class, () -> games.updateGame(joined),
+                "Update from an old version was accepted");
+        Assertions.assertEquals(1, games.getGame(1).version(), "Version did not go up once");
+    }
+
+    private GameData createGame(int gameID) throws DataAccessException {
+        games.createGame(new GameData(gameID, null, null, "game" + gameID, Fen.parse(Fen.STARTING_POSITION)));
+        return games.getGame(gameID);
+    }
+
+    private void play(GameData game, ChessMove... moves) throws InvalidMoveException, DataAccessException {
+        for (ChessMove move : moves) {
+            game.game().makeMove(move);
+            games.appendMove(game, move);
+        }
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
@@ -0,0 +1,46 @@
+package dataAccess;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import model.GameData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs against the in-memory H2 database set up by the test db.properties.
+ */
+public class WriteBehindGameDAOTests {
+
+    private SQLGameDAO stored;
+    private WriteBehindGameDAO games;
+
+    @BeforeEach
+    public void setup() {
+        // Snapshot every 4 plies. The writer is never started, so queued writes never land
+        stored = new SQLGameDAO(4, 1_000);
+        stored.clear();
+        games = new WriteBehindGameDAO(stored, 100, 600, 1);
+    }
+
+    @Test
+    @DisplayName("Moves Are Stored Before They Are Acknowledged")
+    public void movesDurable() throws Exception {
+        games.createGame(new GameData(1, null, null, "game", Fen.parse(Fen.STARTING_POSITION)));
+        GameData game = games.getGame(1);
+        for (ChessMove move : new ChessMove[] {move(2, 5, 4, 5), move(7, 5, 5, 5), move(1, 7, 3, 6),
+                move(8, 2, 6, 3), move(1, 6, 4, 3)}) {
+            game.game().makeMove(move);
+            games.appendMove(game, move);
+        }
+
+        Assertions.assertEquals(game.game(), stored.getGame(1).game(), "Stored game is missing acknowledged moves");
+        Assertions.assertEquals(1, games.stats().pendingWrites(), "Snapshot was not left queued");
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
@@ -0,0 +1,137 @@
+package chess;
+
+/**
+ * Square indexing, piece indexing and precomputed attack tables for the
+ * bitboard representation used by ChessBoard.
+ * <p>
+ * Square 0 is row 1 / column 1 (a1) and square 63 is row 8 / column 8 (h8),
+ * so bit (row-1)*8 + (col-1) of a bitboard stands for that position.
+ */
+final class Bitboards {
+
+    static final int PIECE_COUNT = 12;
+
+    static final long RANK_1 = 0xFFL;
+    static final long RANK_2 = RANK_1 << 8;
+    static final long RANK_7 = RANK_1 << 48;
+    static final long RANK_8 = RANK_1 << 56;
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    // [color ordinal][square]: squares a pawn of that color attacks
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // Ray directions as {row step, column step}. The first four move towards higher squares.
+    private static final int[][] DIRECTIONS = {
+            {1, 0}, {0, 1}, {1, 1}, {1, -1},
+            {-1, 0}, {0, -1}, {-1, -1}, {-1, 1}
+    };
+    private static final int NORTH = 0, EAST = 1, NORTH_EAST = 2, NORTH_WEST = 3;
+    private static final int SOUTH = 4, WEST = 5, SOUTH_WEST = 6, SOUTH_EAST = 7;
+    private static final long[][] RAYS = new long[8][64];
+
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+    private static final ChessPiece[] PIECES = new ChessPiece[PIECE_COUNT];
+
+    static {
+        int[][] knightSteps = {{-2, -1}, {-2, 1}, {2, 1}, {2, -1}, {1, 2}, {-1, 2}, {1, -2}, {-1, -2}};
+        for (int square = 0; square < 64; square++) {
+            int row = square / 8;
+            int col = square % 8;
+            POSITIONS[square] = new ChessPosition(row + 1, col + 1);
+            for (int[] step : knightSteps) {
+                KNIGHT_ATTACKS[square] |= bit(row + step[0], col + step[1]);
+            }
+            for (int i = 0; i < DIRECTIONS.length; i++) {
+                KING_ATTACKS[square] |= bit(row + DIRECTIONS[i][0], col + DIRECTIONS[i][1]);
+                for (int distance = 1; distance < 8; distance++) {
+                    RAYS[i][square] |= bit(row + distance * DIRECTIONS[i][0], col + distance * DIRECTIONS[i][1]);
+                }
+            }
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+        }
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                PIECES[index(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    private Bitboards() {}
+
+    private static long bit(int row, int col) {
+        if (row < 0 || row > 7 || col < 0 || col > 7) {
+            return 0L;
+        }
+        return 1L << (row * 8 + col);
+    }
+
+    static int square(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + position.getColumn() - 1;
+    }
+
+    static boolean onBoard(ChessPosition position) {
+        return position.getRow() > 0 && position.getRow() < 9 && position.getColumn() > 0 && position.getColumn() < 9;
+    }
+
+    /**
+     * @return a shared position for the square; positions are never mutated so these can be handed out freely
+     */
+    static ChessPosition position(int square) {
+        return POSITIONS[square];
+    }
+
+    static int index(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    static int index(ChessPiece piece) {
+        return index(piece.getTeamColor(), piece.getPieceType());
+    }
+
+    /**
+     * @return a shared piece for the piece index; ChessPiece is immutable so one instance per kind is enough
+     */
+    static ChessPiece piece(int index) {
+        return PIECES[index];
+    }
+
+    static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    static long rookAttacks(int square, long occupied) {
+        return positiveRay(NORTH, square, occupied) | positiveRay(EAST, square, occupied) |
+                negativeRay(SOUTH, square, occupied) | negativeRay(WEST, square, occupied);
+    }
+
+    static long bishopAttacks(int square, long occupied) {
+        return positiveRay(NORTH_EAST, square, occupied) | positiveRay(NORTH_WEST, square, occupied) |
+                negativeRay(SOUTH_WEST, square, occupied) | negativeRay(SOUTH_EAST, square, occupied);
+    }
+
+    static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    // The nearest blocker on a ray towards higher squares is its lowest set bit
+    private static long positiveRay(int direction, int square, long occupied) {
+        long attacks = RAYS[direction][square];
+        long blockers = attacks & occupied;
+        if (blockers != 0) {
+            attacks ^= RAYS[direction][Long.numberOfTrailingZeros(blockers)];
+        }
+        return attacks;
+    }
+
+    // The nearest blocker on a ray towards lower squares is its highest set bit
+    private static long negativeRay(int direction, int square, long occupied) {
+        long attacks = RAYS[direction][square];
+        long blockers = attacks & occupied;
+        if (blockers != 0) {
+            attacks ^= RAYS[direction][63 - Long.numberOfLeadingZeros(blockers)];
+        }
+        return attacks;
+    }
+}
@@ -1,20 +1,45 @@
 package chess;
 
-import java.util.ArrayList;
+import com.google.gson.annotations.JsonAdapter;
+
 import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
+ * Pieces are stored as twelve bitboards, one per color and piece type,
+ * indexed by {@link Bitboards#index}. Bit (row-1)*8 + (col-1) is set when
+ * that kind of piece stands on that position.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessBoardAdapter.class)
 public class ChessBoard {
-    ChessPiece[][] board = new ChessPiece[8][8];
+    final long[] pieceBitboards = new long[Bitboards.PIECE_COUNT];
+
+    // Kept in step with pieceBitboards by every change to the board, so the pieces of a
+    // team and the square of its king are known without scanning
+    private final long[] colorOccupancy = new long[2];
+    private final int[] kingSquares = {NO_SQUARE, NO_SQUARE};
+    // Zobrist key of the piece placement, see Zobrist
+    private long zobristKey;
+
+    // Undo records for moves applied with makeMove, most recent last. Each record packs
+    // from square (bits 0-5), to square (6-11), moved piece (12-15), piece placed on the
+    // to square (16-19) and captured piece (20-23, NO_PIECE when nothing was captured).
+    private int[] undoStack = new int[64];
+    private int undoDepth;
+
+    private static final int NO_PIECE = 0xF;
+    static final int NO_SQUARE = -1;
+
     public ChessBoard() {}
 
+    public ChessBoard(ChessBoard other) {
+        copyFrom(other);
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
@@ -22,7 +47,21 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        board[position.getRow()-1][position.getColumn()-1] = piece;
+        int square = Bitboards.square(position);
+        int existing = pieceIndexAt(square);
+        if (existing >= 0) {
+            pieceBitboards[existing] &= ~(1L << square);
+            colorOccupancy[existing / 6] &= ~(1L << square);
+            zobristKey ^= Zobrist.PIECE_SQUARE[existing][square];
+            updateKingSquare(existing);
+        }
+        if (piece != null) {
+            int index = Bitboards.index(piece);
+            pieceBitboards[index] |= 1L << square;
+            colorOccupancy[index / 6] |= 1L << square;
+            zobristKey ^= Zobrist.PIECE_SQUARE[index][square];
+            updateKingSquare(index);
+        }
     }
     /**
      * Gets a chess piece on the chessboard
@@ -32,7 +71,8 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return board[position.getRow()-1][position.getColumn()-1];
+        int index = pieceIndexAt(Bitboards.square(position));
+        return index < 0 ? null : Bitboards.piece(index);
     }
 
     /**
@@ -40,22 +80,196 @@ public class ChessBoard {
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        List<ChessPiece.PieceType> pieces = Arrays.asList(
-                ChessPiece.PieceType.ROOK,
-                ChessPiece.PieceType.KNIGHT,
-                ChessPiece.PieceType.BISHOP,
-                ChessPiece.PieceType.QUEEN,
-                ChessPiece.PieceType.KING,
-                ChessPiece.PieceType.BISHOP,
-                ChessPiece.PieceType.KNIGHT,
-                ChessPiece.PieceType.ROOK
-        );
-        for (int i = 0; i < 8; i++) {
-            addPiece(new ChessPosition(2, i+1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-            addPiece(new ChessPosition(1, i+1), new ChessPiece(ChessGame.TeamColor.WHITE, pieces.get(i)));
-            addPiece(new ChessPosition(7, i+1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-            addPiece(new ChessPosition(8, i+1), new ChessPiece(ChessGame.TeamColor.BLACK, pieces.get(i)));
+        Arrays.fill(pieceBitboards, 0L);
+        setStartingPieces(ChessGame.TeamColor.WHITE, Bitboards.RANK_1, Bitboards.RANK_2);
+        setStartingPieces(ChessGame.TeamColor.BLACK, Bitboards.RANK_8, Bitboards.RANK_7);
+        undoDepth = 0;
+        refreshDerivedState();
+    }
+
+    private void setStartingPieces(ChessGame.TeamColor color, long backRank, long pawnRank) {
+        pieceBitboards[Bitboards.index(color, ChessPiece.PieceType.PAWN)] = pawnRank;
+        pieceBitboards[Bitboards.index(color, ChessPiece.PieceType.ROOK)] = backRank & 0x81_81_81_81_81_81_81_81L;
+        pieceBitboards[Bitboards.index(color, ChessPiece.PieceType.KNIGHT)] = backRank & 0x42_42_42_42_42_42_42_42L;
+        pieceBitboards[Bitboards.index(color, ChessPiece.PieceType.BISHOP)] = backRank & 0x24_24_24_24_24_24_24_24L;
+        pieceBitboards[Bitboards.index(color, ChessPiece.PieceType.QUEEN)] = backRank & 0x08_08_08_08_08_08_08_08L;
+        pieceBitboards[Bitboards.index(color, ChessPiece.PieceType.KING)] = backRank & 0x10_10_10_10_10_10_10_10L;
+    }
+
+    void copyFrom(ChessBoard other) {
+        System.arraycopy(other.pieceBitboards, 0, pieceBitboards, 0, pieceBitboards.length);
+        undoDepth = 0;
+        refreshDerivedState();
+    }
+
+    private void refreshDerivedState() {
+        zobristKey = 0L;
+        for (int i = 0; i < pieceBitboards.length; i++) {
+            for (long pieces = pieceBitboards[i]; pieces != 0; pieces &= pieces - 1) {
+                zobristKey ^= Zobrist.PIECE_SQUARE[i][Long.numberOfTrailingZeros(pieces)];
+            }
+        }
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            colorOccupancy[color.ordinal()] = 0L;
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                colorOccupancy[color.ordinal()] |= pieces(color, type);
+            }
+            updateKingSquare(Bitboards.index(color, ChessPiece.PieceType.KING));
+        }
+    }
+
+    private void updateKingSquare(int index) {
+        if (index % 6 == ChessPiece.PieceType.KING.ordinal()) {
+            long king = pieceBitboards[index];
+            kingSquares[index / 6] = king == 0 ? NO_SQUARE : Long.numberOfTrailingZeros(king);
+        }
+    }
+
+    /**
+     * Moves the piece on the move's start position to its end position in place, replacing it
+     * with the promotion piece if there is one, and records what is needed to take it back with
+     * {@link #unmakeMove()}. The move is not checked for legality.
+     */
+    void makeMove(ChessMove move) {
+        int record = move(move);
+        if (undoDepth == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+        }
+        undoStack[undoDepth++] = record;
+    }
+
+    /**
+     * Moves the piece like {@link #makeMove(ChessMove)}, but for a move that is being played
+     * rather than tried, so no undo record is kept for it
+     */
+    void playMove(ChessMove move) {
+        move(move);
+    }
+
+    // Applies the move and returns its undo record
+    private int move(ChessMove move) {
+        int from = Bitboards.square(move.getStartPosition());
+        int to = Bitboards.square(move.getEndPosition());
+        int moved = pieceIndexAt(from);
+        int captured = pieceIndexAt(to);
+        int placed = move.getPromotionPiece() == null ? moved
+                : Bitboards.index(Bitboards.piece(moved).getTeamColor(), move.getPromotionPiece());
+
+        pieceBitboards[moved] &= ~(1L << from);
+        colorOccupancy[moved / 6] ^= 1L << from | 1L << to;
+        zobristKey ^= Zobrist.PIECE_SQUARE[moved][from] ^ Zobrist.PIECE_SQUARE[placed][to];
+        if (captured >= 0) {
+            pieceBitboards[captured] &= ~(1L << to);
+            colorOccupancy[captured / 6] &= ~(1L << to);
+            zobristKey ^= Zobrist.PIECE_SQUARE[captured][to];
+            updateKingSquare(captured);
+        }
+        pieceBitboards[placed] |= 1L << to;
+        updateKingSquare(placed);
+
+        return from | to << 6 | moved << 12 | placed << 16 | (captured < 0 ? NO_PIECE : captured) << 20;
+    }
+
+    /**
+     * Takes back the most recent move applied with {@link #makeMove(ChessMove)}
+     */
+    void unmakeMove() {
+        int record = undoStack[--undoDepth];
+        int from = record & 0x3F;
+        int to = (record >>> 6) & 0x3F;
+        int moved = (record >>> 12) & 0xF;
+        int placed = (record >>> 16) & 0xF;
+        int captured = (record >>> 20) & 0xF;
+
+        pieceBitboards[placed] &= ~(1L << to);
+        pieceBitboards[moved] |= 1L << from;
+        colorOccupancy[moved / 6] ^= 1L << from | 1L << to;
+        zobristKey ^= Zobrist.PIECE_SQUARE[moved][from] ^ Zobrist.PIECE_SQUARE[placed][to];
+        updateKingSquare(moved);
+        if (captured != NO_PIECE) {
+            pieceBitboards[captured] |= 1L << to;
+            colorOccupancy[captured / 6] |= 1L << to;
+            zobristKey ^= Zobrist.PIECE_SQUARE[captured][to];
+            updateKingSquare(captured);
+        }
+    }
+
+    /**
+     * Determines if any piece of the given team attacks a position, whether or not
+     * a piece currently stands there
+     *
+     * @param position  the position to test
+     * @param attackers which team to look for attacks from
+     * @return True if a piece of the attacking team could capture on the position
+     */
+    public boolean isSquareAttacked(ChessPosition position, ChessGame.TeamColor attackers) {
+        return isAttacked(Bitboards.square(position), attackers);
+    }
+
+    // Probes outward from the square: a piece attacks it exactly when the same kind of piece
+    // standing on the square would attack that piece back (pawns being the mirrored exception)
+    boolean isAttacked(int square, ChessGame.TeamColor attackers) {
+        ChessGame.TeamColor defenders = Bitboards.opponent(attackers);
+        if ((Bitboards.PAWN_ATTACKS[defenders.ordinal()][square] & pieces(attackers, ChessPiece.PieceType.PAWN)) != 0 ||
+                (Bitboards.KNIGHT_ATTACKS[square] & pieces(attackers, ChessPiece.PieceType.KNIGHT)) != 0 ||
+                (Bitboards.KING_ATTACKS[square] & pieces(attackers, ChessPiece.PieceType.KING)) != 0) {
+            return true;
+        }
+        long queens = pieces(attackers, ChessPiece.PieceType.QUEEN);
+        long straight = pieces(attackers, ChessPiece.PieceType.ROOK) | queens;
+        long diagonal = pieces(attackers, ChessPiece.PieceType.BISHOP) | queens;
+        long occupied = occupied();
+        return (straight != 0 && (Bitboards.rookAttacks(square, occupied) & straight) != 0) ||
+                (diagonal != 0 && (Bitboards.bishopAttacks(square, occupied) & diagonal) != 0);
+    }
+
+    /**
+     * @return the piece index at the square, or -1 if the square is empty
+     */
+    int pieceIndexAt(int square) {
+        long bit = 1L << square;
+        int first;
+        if ((colorOccupancy[0] & bit) != 0) {
+            first = 0;
         }
+        else if ((colorOccupancy[1] & bit) != 0) {
+            first = 6;
+        }
+        else {
+            return -1;
+        }
+        for (int i = first; i < first + 6; i++) {
+            if ((pieceBitboards[i] & bit) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceBitboards[Bitboards.index(color, type)];
+    }
+
+    long occupancy(ChessGame.TeamColor color) {
+        return colorOccupancy[color.ordinal()];
+    }
+
+    long occupied() {
+        return colorOccupancy[0] | colorOccupancy[1];
+    }
+
+    /**
+     * @return the square of the team's king, or NO_SQUARE if it has none on the board
+     */
+    int kingSquare(ChessGame.TeamColor color) {
+        return kingSquares[color.ordinal()];
+    }
+
+    /**
+     * @return the Zobrist key of the piece placement, not including side to move
+     */
+    long zobristKey() {
+        return zobristKey;
     }
 
     @Override
@@ -64,11 +278,11 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        return Arrays.equals(pieceBitboards, that.pieceBitboards);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return Long.hashCode(zobristKey);
     }
 }
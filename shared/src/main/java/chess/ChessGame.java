@@ -17,11 +17,20 @@ public class ChessGame {
 
     private boolean gameOver;
 
+    private int ply;
+
     public ChessGame() {
         board = new ChessBoard();
         setTeamTurn(TeamColor.WHITE);
     }
 
+    public ChessGame(ChessGame other) {
+        board = new ChessBoard(other.board);
+        teamTurn = other.teamTurn;
+        gameOver = other.gameOver;
+        ply = other.ply;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -54,31 +63,45 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
-        ChessGame.TeamColor pieceColor = board.getPiece(startPosition).getTeamColor();
-        Collection<ChessMove> possibleMoves = board.getPiece(startPosition).pieceMoves(board, startPosition);
+        ChessPiece piece = board.getPiece(startPosition);
+        if (piece == null) {
+            return null;
+        }
         Collection<ChessMove> actualMoves = new ArrayList<>();
-        for (ChessMove move : possibleMoves) {
-            chess.ChessBoard tempBoard = new ChessBoard();
-            for (int i = 1; i < 9; i++) {
-                for (int j = 1; j < 9; j++) {
-                    ChessPosition position = new ChessPosition(i, j);
-                    if (board.getPiece(position) != null) {
-                        tempBoard.addPiece(position, new ChessPiece(board.getPiece(position).getTeamColor(),
-                                board.getPiece(position).getPieceType()));
-                    }
-                }
-            }
-            tempBoard.addPiece(move.getEndPosition(), tempBoard.getPiece(move.getStartPosition()));
-            tempBoard.addPiece(move.getStartPosition(), null);
-            ChessGame tempGame = new ChessGame();
-            tempGame.setBoard(tempBoard);
-            if (!tempGame.isInCheck(pieceColor) && !tempGame.isInCheckmate(getTeamTurn())) {
+        for (ChessMove move : piece.pieceMoves(board, startPosition)) {
+            if (isLegal(move, piece.getTeamColor())) {
                 actualMoves.add(move);
             }
         }
         return actualMoves;
     }
 
+    /**
+     * Gets every valid move for the team whose turn it is
+     *
+     * @return Collection of valid moves, empty if the team has none
+     */
+    public Collection<ChessMove> allValidMoves() {
+        Collection<ChessMove> actualMoves = new ArrayList<>();
+        for (long pieces = board.occupancy(teamTurn); pieces != 0; pieces &= pieces - 1) {
+            ChessPosition position = Bitboards.position(Long.numberOfTrailingZeros(pieces));
+            for (ChessMove move : board.getPiece(position).pieceMoves(board, position)) {
+                if (isLegal(move, teamTurn)) {
+                    actualMoves.add(move);
+                }
+            }
+        }
+        return actualMoves;
+    }
+
+    // Plays the move on the board in place, checks the mover's king, then takes the move back
+    private boolean isLegal(ChessMove move, TeamColor pieceColor) {
+        board.makeMove(move);
+        boolean legal = !isInCheck(pieceColor);
+        board.unmakeMove();
+        return legal;
+    }
+
     /**
      * Makes a move in a chess game
      *
@@ -86,37 +109,75 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        if (board.getPiece(move.getStartPosition()) == null) {
+        checkPieces(move);
+        Collection<ChessMove> possibleMoves = validMoves(move.getStartPosition());
+        if (!possibleMoves.contains(move)) {
+            throw rejection(move, possibleMoves);
+        }
+        applyMove(move);
+    }
+
+    /**
+     * Makes a move, checking it against valid moves that were already computed for
+     * this position rather than generating them again
+     *
+     * @param move       chess move to perform
+     * @param validMoves every valid move in the current position, as returned by allValidMoves
+     * @throws InvalidMoveException if move is not one of validMoves
+     */
+    public void makeMove(ChessMove move, Collection<ChessMove> validMoves) throws InvalidMoveException {
+        if (!validMoves.contains(move)) {
+            checkPieces(move);
+            throw rejection(move, validMoves);
+        }
+        applyMove(move);
+    }
+
+    // Rejects moves that are wrong before legality even comes into it
+    private void checkPieces(ChessMove move) throws InvalidMoveException {
+        ChessPiece piece = board.getPiece(move.getStartPosition());
+        if (piece == null) {
             throw new InvalidMoveException("There is no piece there");
         }
-        if (board.getPiece(move.getStartPosition()).getTeamColor() != getTeamTurn()){
-            throw new InvalidMoveException("That is not your piece");
+        if (piece.getTeamColor() != getTeamTurn()) {
+            throw new InvalidMoveException("It is not %s's turn".formatted(piece.getTeamColor()));
         }
-        if (board.getPiece(move.getEndPosition()) != null && board.getPiece(move.getEndPosition()).getTeamColor() == getTeamTurn()) {
+        ChessPiece target = board.getPiece(move.getEndPosition());
+        if (target != null && target.getTeamColor() == getTeamTurn()) {
             throw new InvalidMoveException("You can't capture your own pieces");
         }
-        Collection<ChessMove> possibleMoves = validMoves(move.getStartPosition());
-        for (ChessMove possibleMove: possibleMoves) {
-            if (move.equals(possibleMove)) {
+    }
+
+    // Explains why a move with the right pieces is still not among the valid moves
+    private InvalidMoveException rejection(ChessMove move, Collection<ChessMove> validMoves) {
+        for (ChessMove valid : validMoves) {
+            if (valid.getStartPosition().equals(move.getStartPosition()) && valid.getEndPosition().equals(move.getEndPosition())) {
                 if (move.getPromotionPiece() == null) {
-                    board.addPiece(move.getEndPosition(), board.getPiece(move.getStartPosition()));
-                    board.addPiece(move.getStartPosition(), null);
+                    return new InvalidMoveException("That move needs a promotion piece");
                 }
-                else {
-                    board.addPiece(move.getEndPosition(), new ChessPiece(board.getPiece(move.getStartPosition()).getTeamColor(),
-                            move.getPromotionPiece()));
-                    board.addPiece(move.getStartPosition(), null);
-                }
-                if (getTeamTurn() == TeamColor.BLACK) {
-                    setTeamTurn(TeamColor.WHITE);
-                }
-                else {
-                    setTeamTurn(TeamColor.BLACK);
-                }
-                return;
+                return new InvalidMoveException(valid.getPromotionPiece() == null
+                        ? "That move is not a promotion"
+                        : "A pawn can not promote to " + move.getPromotionPiece());
             }
         }
-        throw new InvalidMoveException("That's not good");
+        for (ChessMove possible : board.getPiece(move.getStartPosition()).pieceMoves(board, move.getStartPosition())) {
+            if (possible.getEndPosition().equals(move.getEndPosition())) {
+                return new InvalidMoveException("That move would leave your king in check");
+            }
+        }
+        return new InvalidMoveException("That piece can not move there");
+    }
+
+    private void applyMove(ChessMove move) {
+        // Played moves are never taken back, so they leave no undo record behind
+        board.playMove(move);
+        ply++;
+        if (getTeamTurn() == TeamColor.BLACK) {
+            setTeamTurn(TeamColor.WHITE);
+        }
+        else {
+            setTeamTurn(TeamColor.BLACK);
+        }
     }
 
     /**
@@ -126,33 +187,11 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = new ChessPosition(0, 0);
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                ChessPosition position = new ChessPosition(i, j);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor && piece.getPieceType() == ChessPiece.PieceType.KING) {
-                    kingPosition = position;
-                }
-            }
-        }
-
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                ChessPosition enemyPosition = new ChessPosition(i, j);
-                ChessPiece enemyPiece = board.getPiece(enemyPosition);
-                if (enemyPiece == null || enemyPiece.getTeamColor() == teamColor) {
-                    continue;
-                }
-                Collection<ChessMove> otherMoves = board.getPiece(enemyPosition).pieceMoves(board, enemyPosition);
-                for (ChessMove move: otherMoves) {
-                    if (move.getEndPosition().equals(kingPosition)) {
-                        return true;
-                    }
-                }
-            }
+        int kingSquare = board.kingSquare(teamColor);
+        if (kingSquare == ChessBoard.NO_SQUARE) {
+            return false;
         }
-        return false;
+        return board.isAttacked(kingSquare, Bitboards.opponent(teamColor));
     }
 
     /**
@@ -166,19 +205,20 @@ public class ChessGame {
         if (isInCheck(teamColor) == inCheckAllowed) {
             return false;
         }
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                ChessPosition position = new ChessPosition(i, j);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    Collection<ChessMove> possibleMoves = validMoves(position);
-                    if (!possibleMoves.isEmpty()) {
-                        return false;
-                    }
+        return !hasLegalMove(teamColor);
+    }
+
+    // Stops at the first legal move instead of building every piece's valid move list
+    private boolean hasLegalMove(TeamColor teamColor) {
+        for (long pieces = board.occupancy(teamColor); pieces != 0; pieces &= pieces - 1) {
+            ChessPosition position = Bitboards.position(Long.numberOfTrailingZeros(pieces));
+            for (ChessMove move : board.getPiece(position).pieceMoves(board, position)) {
+                if (isLegal(move, teamColor)) {
+                    return true;
                 }
             }
         }
-        return true;
+        return false;
     }
 
     public boolean isInCheckmate(TeamColor teamColor) {
@@ -202,12 +242,7 @@ public class ChessGame {
      * @param board the new board to use
      */
     public void setBoard(ChessBoard board) {
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                ChessPiece piece = board.getPiece(new ChessPosition(i, j));
-                this.board.addPiece(new ChessPosition(i, j), piece);
-            }
-        }
+        this.board.copyFrom(board);
     }
 
     /**
@@ -227,6 +262,35 @@ public class ChessGame {
         return gameOver;
     }
 
+    /**
+     * Gets the number of moves made in this game, counting each team's move separately
+     *
+     * @return the ply count; 0 before the first move
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Sets the ply count, for games restored from storage that do not carry their history
+     *
+     * @param ply the number of moves already made in this game
+     */
+    public void setPly(int ply) {
+        this.ply = ply;
+    }
+
+    /**
+     * Gets a 64-bit Zobrist hash of the position: the pieces on the board and whose
+     * turn it is. It is updated incrementally as moves are made, so it is cheap to
+     * read, and it is computed the same way on every JVM.
+     *
+     * @return the position hash; equal positions always have equal hashes
+     */
+    public long getPositionHash() {
+        return board.zobristKey() ^ Zobrist.sideToMove(teamTurn);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -240,6 +304,6 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(teamTurn, board);
+        return Long.hashCode(getPositionHash());
     }
 }
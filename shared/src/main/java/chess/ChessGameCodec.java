@@ -0,0 +1,122 @@
+package chess;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary encoding of a ChessGame for storage.
+ * <p>
+ * Layout (version 1):
+ * <pre>
+ *   byte    version
+ *   byte    flags: bit 0 set when black is to move, bit 1 set when the game is over
+ *   long    occupancy: bit (row-1)*8 + (col-1) set for each occupied position
+ *   nibbles one piece index per occupied position, lowest position first, two per byte
+ * </pre>
+ * A full starting board takes 26 bytes; positions with fewer pieces take less.
+ * <p>
+ * Single moves are encoded into a short for the move log: bits 0-5 hold the start
+ * square, bits 6-11 the end square and bits 12-14 the promotion piece's ordinal plus
+ * one, or 0 for no promotion.
+ */
+public final class ChessGameCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int GAME_OVER = 1 << 1;
+    private static final int HEADER_BYTES = 2 + Long.BYTES;
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    private ChessGameCodec() {}
+
+    public static byte[] encode(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long occupied = board.occupied();
+        int pieceCount = Long.bitCount(occupied);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (pieceCount + 1) / 2);
+
+        int flags = 0;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK) {
+            flags |= BLACK_TO_MOVE;
+        }
+        if (game.getGameOver()) {
+            flags |= GAME_OVER;
+        }
+        buffer.put(VERSION).put((byte) flags).putLong(occupied);
+
+        int packed = 0;
+        int i = 0;
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1, i++) {
+            int index = board.pieceIndexAt(Long.numberOfTrailingZeros(pieces));
+            if (i % 2 == 0) {
+                packed = index;
+            }
+            else {
+                buffer.put((byte) (packed | index << 4));
+            }
+        }
+        if (pieceCount % 2 == 1) {
+            buffer.put((byte) packed);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a game written by encode
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Not an encoded chess game");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.get();
+        int flags = buffer.get();
+        long occupied = buffer.getLong();
+        if (bytes.length != HEADER_BYTES + (Long.bitCount(occupied) + 1) / 2) {
+            throw new IllegalArgumentException("Encoded chess game has the wrong length");
+        }
+
+        ChessBoard board = new ChessBoard();
+        int packed = 0;
+        int i = 0;
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1, i++) {
+            int index;
+            if (i % 2 == 0) {
+                packed = buffer.get();
+                index = packed & 0xF;
+            }
+            else {
+                index = (packed >>> 4) & 0xF;
+            }
+            if (index >= Bitboards.PIECE_COUNT) {
+                throw new IllegalArgumentException("Encoded chess game has an unknown piece: " + index);
+            }
+            board.addPiece(Bitboards.position(Long.numberOfTrailingZeros(pieces)), Bitboards.piece(index));
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn((flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.setGameOver((flags & GAME_OVER) != 0);
+        return game;
+    }
+
+    public static short encodeMove(ChessMove move) {
+        int promotion = move.getPromotionPiece() == null ? 0 : move.getPromotionPiece().ordinal() + 1;
+        return (short) (Bitboards.square(move.getStartPosition())
+                | Bitboards.square(move.getEndPosition()) << 6
+                | promotion << 12);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not a move written by encodeMove
+     */
+    public static ChessMove decodeMove(short encoded) {
+        int promotion = encoded >>> 12;
+        if (encoded < 0 || promotion > PIECE_TYPES.length) {
+            throw new IllegalArgumentException("Not an encoded chess move: " + encoded);
+        }
+        return new ChessMove(Bitboards.position(encoded & 0x3F), Bitboards.position(encoded >>> 6 & 0x3F),
+                promotion == 0 ? null : PIECE_TYPES[promotion - 1]);
+    }
+}
@@ -12,6 +12,8 @@ public class ChessPiece {
     final private ChessGame.TeamColor pieceColor;
     final private ChessPiece.PieceType type;
 
+    private static final PieceType[] PROMOTIONS = {PieceType.ROOK, PieceType.QUEEN, PieceType.BISHOP, PieceType.KNIGHT};
+
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
         this.pieceColor = pieceColor;
         this.type = type;
@@ -51,166 +53,50 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        List<ChessMove> moves = new ArrayList<>();
-        if (board.getPiece(myPosition).getPieceType() == PieceType.BISHOP) {
-            moves = calculateDiagonalAndSides(myPosition, board, 1, 1, moves);
-            moves = calculateDiagonalAndSides(myPosition, board, 1, -1, moves);
-            moves = calculateDiagonalAndSides(myPosition, board, -1, 1, moves);
-            return calculateDiagonalAndSides(myPosition, board, -1, -1, moves);
-        }
-        else if (board.getPiece(myPosition).getPieceType() == PieceType.KING) {
-            return calculateKing(myPosition, board, moves);
-        }
-        else if (board.getPiece(myPosition).getPieceType() == PieceType.KNIGHT) {
-            return calculateKnight(myPosition, board, moves);
-        }
-        else if (board.getPiece(myPosition).getPieceType() == PieceType.PAWN) {
-            if (pieceColor == ChessGame.TeamColor.WHITE) {
-                return calculatePawn(myPosition, board, 1, 2, moves);
-            }
-            else {
-                return calculatePawn(myPosition, board, -1, 7, moves);
-            }
-        }
-        else if (board.getPiece(myPosition).getPieceType() == PieceType.ROOK) {
-            moves = calculateDiagonalAndSides(myPosition, board, 0, 1, moves);
-            moves = calculateDiagonalAndSides(myPosition, board, 0, -1, moves);
-            moves = calculateDiagonalAndSides(myPosition, board, 1, 0, moves);
-            return calculateDiagonalAndSides(myPosition, board, -1, 0, moves);
-        }
-        else if (board.getPiece(myPosition).getPieceType() == PieceType.QUEEN) {
-            moves = calculateDiagonalAndSides(myPosition, board, 1, 1, moves);
-            moves = calculateDiagonalAndSides(myPosition, board, 1, -1, moves);
-            moves = calculateDiagonalAndSides(myPosition, board, -1, 1, moves);
-            moves = calculateDiagonalAndSides(myPosition, board, -1, -1, moves);
-            moves = calculateDiagonalAndSides(myPosition, board, 0, 1, moves);
-            moves = calculateDiagonalAndSides(myPosition, board, 0, -1, moves);
-            moves = calculateDiagonalAndSides(myPosition, board, 1, 0, moves);
-            return calculateDiagonalAndSides(myPosition, board, -1, 0, moves);
-        }
-        return List.of();
-    }
-
-    public List<ChessMove> calculateDiagonalAndSides(ChessPosition myPosition, ChessBoard board, int row, int col, List<ChessMove> moves) {
-        for (int i = 1; i < 8; i++) {
-            ChessPosition newPosition = new ChessPosition(myPosition.getRow() + i*row, myPosition.getColumn() + i*col);
-            if (isValid(board, newPosition)) {
-                if (board.getPiece(newPosition) != null && board.getPiece(newPosition).getTeamColor() != pieceColor) {
-                    moves.add(new ChessMove(myPosition, newPosition, null));
-                    break;
-                }
-                else {
-                    moves.add(new ChessMove(myPosition, newPosition, null));
+        int from = Bitboards.square(myPosition);
+        long own = board.occupancy(pieceColor);
+        long enemy = board.occupancy(Bitboards.opponent(pieceColor));
+        long occupied = own | enemy;
+        long targets = switch (type) {
+            case KING -> Bitboards.KING_ATTACKS[from];
+            case QUEEN -> Bitboards.queenAttacks(from, occupied);
+            case BISHOP -> Bitboards.bishopAttacks(from, occupied);
+            case KNIGHT -> Bitboards.KNIGHT_ATTACKS[from];
+            case ROOK -> Bitboards.rookAttacks(from, occupied);
+            case PAWN -> pawnTargets(from, enemy, occupied);
+        };
+        targets &= ~own;
+
+        List<ChessMove> moves = new ArrayList<>(Long.bitCount(targets));
+        long promotionRank = pieceColor == ChessGame.TeamColor.WHITE ? Bitboards.RANK_7 : Bitboards.RANK_2;
+        boolean promotes = type == PieceType.PAWN && ((1L << from) & promotionRank) != 0;
+        for (; targets != 0; targets &= targets - 1) {
+            ChessPosition to = Bitboards.position(Long.numberOfTrailingZeros(targets));
+            if (promotes) {
+                for (PieceType promotion : PROMOTIONS) {
+                    moves.add(new ChessMove(myPosition, to, promotion));
                 }
             }
             else {
-                break;
+                moves.add(new ChessMove(myPosition, to, null));
             }
         }
         return moves;
     }
 
-    public List<ChessMove> calculatePawn(ChessPosition myPosition, ChessBoard board, int direction, int startPos, List<ChessMove> moves) {
-        int x = myPosition.getRow() + direction;
-        int y = myPosition.getColumn();
-        ChessPosition newPosition = new ChessPosition(x, y);
-        List<PieceType> pieces = Arrays.asList(
-                PieceType.ROOK,
-                PieceType.QUEEN,
-                PieceType.BISHOP,
-                PieceType.KNIGHT
-        );
-        if (x + direction > 8 || x + direction < 1) {
-            for (PieceType promotion: pieces) {
-                pawnCapture(myPosition, new ChessPosition(x, y+1), promotion, board, moves);
-                pawnCapture(myPosition, new ChessPosition(x, y-1),promotion, board, moves);
-                pawnUp(myPosition, new ChessPosition(x, y), promotion, board, moves);
-            }
+    private long pawnTargets(int from, long enemy, long occupied) {
+        long captures = Bitboards.PAWN_ATTACKS[pieceColor.ordinal()][from] & enemy;
+        long pawn = 1L << from;
+        long pushes;
+        if (pieceColor == ChessGame.TeamColor.WHITE) {
+            pushes = (pawn << 8) & ~occupied;
+            pushes |= ((pushes & (Bitboards.RANK_2 << 8)) << 8) & ~occupied;
         }
         else {
-            pawnCapture(myPosition, new ChessPosition(x, y+1), null, board, moves);
-            pawnCapture(myPosition, new ChessPosition(x, y-1),null, board, moves);
-            pawnUp(myPosition, newPosition, null, board, moves);
-            if (x-direction == startPos) {
-                pawnUpTwo(myPosition, new ChessPosition(x+direction, y), null, board, direction, moves);
-            }
-        }
-        return moves;
-    }
-
-    public List<ChessMove> pawnCapture(ChessPosition myPosition, ChessPosition newPosition, PieceType type, ChessBoard board, List<ChessMove> moves){
-        if (newPosition.getColumn() > 0 && newPosition.getColumn() < 9 &&
-                newPosition.getRow() > 0 && newPosition.getRow() < 9 && board.getPiece(newPosition) != null &&
-                board.getPiece(newPosition).getTeamColor() != pieceColor) {
-            moves.add(new ChessMove(myPosition, newPosition, type));
+            pushes = (pawn >>> 8) & ~occupied;
+            pushes |= ((pushes & (Bitboards.RANK_7 >>> 8)) >>> 8) & ~occupied;
         }
-        return moves;
-    }
-
-    public List<ChessMove> pawnUp(ChessPosition myPosition, ChessPosition newPosition, PieceType type, ChessBoard board, List<ChessMove> moves){
-        if (pawnIsValid(board, newPosition)) {
-            moves.add(new ChessMove(myPosition, newPosition, type));
-        }
-        return moves;
-    }
-
-    public List<ChessMove> pawnUpTwo(ChessPosition myPosition, ChessPosition newPosition,
-                                     PieceType type, ChessBoard board, int direction, List<ChessMove> moves){
-        if (pawnIsValid(board, newPosition) && pawnIsValid(board, new ChessPosition(newPosition.getRow()-direction, newPosition.getColumn()))) {
-            moves.add(new ChessMove(myPosition, newPosition, type));
-        }
-        return moves;
-    }
-
-    public boolean pawnIsValid(ChessBoard board, ChessPosition newPosition) {
-        return (newPosition.getRow() < 9 && newPosition.getRow() > 0 &&
-                newPosition.getColumn() < 9 && newPosition.getColumn() > 0 && board.getPiece(newPosition) == null);
-    }
-
-    public List<ChessMove> calculateKing(ChessPosition myPosition, ChessBoard board, List<ChessMove> moves){
-        List<List<Integer>> rowsAndCols = Arrays.asList(
-                Arrays.asList(-1, -1),
-                Arrays.asList(-1, 0),
-                Arrays.asList(-1, 1),
-                Arrays.asList(0, -1),
-                Arrays.asList(0, 1),
-                Arrays.asList(1, -1),
-                Arrays.asList(1, 0),
-                Arrays.asList(1, 1)
-        );
-        return knightKingHelper(myPosition, board, rowsAndCols, moves);
-    }
-
-    public List<ChessMove> knightKingHelper(ChessPosition myPosition, ChessBoard board, List<List<Integer>> rowsAndCols, List<ChessMove> moves){
-        for (int i = 0; i < rowsAndCols.size(); i++){
-            ChessPosition newPosition = new ChessPosition(myPosition.getRow() + rowsAndCols.get(i).get(0),
-                    myPosition.getColumn() + rowsAndCols.get(i).get(1));
-            if (isValid(board, newPosition)) {
-                moves.add(new ChessMove(myPosition, new ChessPosition(myPosition.getRow() + rowsAndCols.get(i).get(0),
-                        myPosition.getColumn() + rowsAndCols.get(i).get(1)), null));
-            }
-        }
-        return moves;
-    }
-
-    public List<ChessMove> calculateKnight(ChessPosition myPosition, ChessBoard board, List<ChessMove> moves){
-        List<List<Integer>> rowsAndCols = Arrays.asList(
-                Arrays.asList(-2, -1),
-                Arrays.asList(-2, 1),
-                Arrays.asList(2, 1),
-                Arrays.asList(2, -1),
-                Arrays.asList(1, 2),
-                Arrays.asList(-1, 2),
-                Arrays.asList(1, -2),
-                Arrays.asList(-1, -2)
-        );
-        return knightKingHelper(myPosition, board, rowsAndCols, moves);
-    }
-
-    public boolean isValid(ChessBoard board, ChessPosition newPosition) {
-        return (newPosition.getRow() < 9 && newPosition.getRow() > 0 &&
-                newPosition.getColumn() < 9 && newPosition.getColumn() > 0 &&
-                (board.getPiece(newPosition) == null || board.getPiece(newPosition).getTeamColor() != pieceColor));
+        return captures | pushes;
     }
 
     @Override
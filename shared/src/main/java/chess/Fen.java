@@ -0,0 +1,101 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation.
+ * <p>
+ * Only the piece placement and side to move fields are used. ChessGame does not
+ * track castling rights, en passant or move counters, so those fields are
+ * ignored when reading and written as "- - 0 1".
+ */
+public final class Fen {
+
+    public static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_LETTERS = "kqbnrp";
+
+    private Fen() {}
+
+    /**
+     * @param fen position in Forsyth-Edwards Notation
+     * @return a game set up with the position and side to move
+     * @throws IllegalArgumentException if the placement or side to move can not be read,
+     *                                  including a rank that does not cover exactly 8 squares
+     */
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("Expected 8 ranks in FEN: " + fen);
+        }
+
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : ranks[i].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    col += c - '0';
+                    if (col > 9) {
+                        throw new IllegalArgumentException("Rank '%s' has more than 8 squares in FEN: %s".formatted(ranks[i], fen));
+                    }
+                    continue;
+                }
+                int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+                if (type < 0) {
+                    throw new IllegalArgumentException("Bad rank '%s' in FEN: %s".formatted(ranks[i], fen));
+                }
+                if (col > 8) {
+                    throw new IllegalArgumentException("Rank '%s' has more than 8 squares in FEN: %s".formatted(ranks[i], fen));
+                }
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                board.addPiece(new ChessPosition(row, col++), new ChessPiece(color, ChessPiece.PieceType.values()[type]));
+            }
+            if (col != 9) {
+                throw new IllegalArgumentException("Rank '%s' has fewer than 8 squares in FEN: %s".formatted(ranks[i], fen));
+            }
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        if (fields.length > 1) {
+            switch (fields[1]) {
+                case "w" -> game.setTeamTurn(ChessGame.TeamColor.WHITE);
+                case "b" -> game.setTeamTurn(ChessGame.TeamColor.BLACK);
+                default -> throw new IllegalArgumentException("Bad side to move in FEN: " + fen);
+            }
+        }
+        return game;
+    }
+
+    /**
+     * @return the game's position in Forsyth-Edwards Notation
+     */
+    public static String toFen(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        StringBuilder fen = new StringBuilder();
+        for (int row = 8; row > 0; row--) {
+            int empty = 0;
+            for (int col = 1; col < 9; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+                fen.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w" : " b");
+        return fen.append(" - - 0 1").toString();
+    }
+}
@@ -0,0 +1,120 @@
+package chess;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the leaf nodes of the legal move tree from a position (perft). Comparing
+ * the counts with published values checks move generation, and timing them
+ * measures its throughput.
+ * <p>
+ * Legal moves come from {@link ChessGame#allValidMoves()}, the same generator games
+ * are played with, so the counts check that code rather than a copy of it. Moves are
+ * played on the game's own board with make/unmake, so the game is left as it was once
+ * a count returns.
+ * <p>
+ * Usage: {@code Perft <depth> [fen]}, which prints the node count below every
+ * legal first move (divide output), the total, and nodes per second.
+ */
+public final class Perft {
+
+    private Perft() {}
+
+    /**
+     * @param game  position and side to move to count from
+     * @param depth number of plies to search
+     * @return the number of legal move sequences of exactly depth plies
+     * @throws IllegalArgumentException if depth is negative
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Perft depth must not be negative, was " + depth);
+        }
+        return count(game, depth);
+    }
+
+    /**
+     * @return the node count below each legal first move, in move generation order
+     * @throws IllegalArgumentException if depth is less than 1, since there are no first moves to divide by
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Divide depth must be at least 1, was " + depth);
+        }
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        for (ChessMove move : game.allValidMoves()) {
+            play(game, move);
+            counts.put(move, count(game, depth - 1));
+            takeBack(game);
+        }
+        return counts;
+    }
+
+    private static long count(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        Collection<ChessMove> moves = game.allValidMoves();
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (ChessMove move : moves) {
+            play(game, move);
+            nodes += count(game, depth - 1);
+            takeBack(game);
+        }
+        return nodes;
+    }
+
+    // Make/unmake rather than ChessGame.makeMove, which would validate the move all over again
+    private static void play(ChessGame game, ChessMove move) {
+        game.getBoard().makeMove(move);
+        game.setTeamTurn(Bitboards.opponent(game.getTeamTurn()));
+    }
+
+    private static void takeBack(ChessGame game) {
+        game.getBoard().unmakeMove();
+        game.setTeamTurn(Bitboards.opponent(game.getTeamTurn()));
+    }
+
+    /**
+     * @return the move in coordinate notation, such as e2e4 or e7e8q
+     */
+    public static String toCoordinates(ChessMove move) {
+        String text = square(move.getStartPosition()) + square(move.getEndPosition());
+        if (move.getPromotionPiece() != null) {
+            text += move.getPromotionPiece() == ChessPiece.PieceType.KNIGHT ? "n"
+                    : move.getPromotionPiece().name().substring(0, 1).toLowerCase();
+        }
+        return text;
+    }
+
+    private static String square(ChessPosition position) {
+        return "%c%d".formatted((char) ('a' + position.getColumn() - 1), position.getRow());
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: Perft <depth> [fen]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        String fen = args.length > 1 ? String.join(" ", List.of(args).subList(1, args.length)) : Fen.STARTING_POSITION;
+        ChessGame game = Fen.parse(fen);
+
+        long start = System.nanoTime();
+        Map<ChessMove, Long> counts = divide(game, depth);
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0;
+        for (Map.Entry<ChessMove, Long> entry : counts.entrySet()) {
+            System.out.printf("%s: %d%n", toCoordinates(entry.getKey()), entry.getValue());
+            total += entry.getValue();
+        }
+        System.out.printf("%nNodes searched: %d%n", total);
+        System.out.printf("Time: %d ms (%.0f nodes/s)%n", elapsed / 1_000_000, total / (elapsed / 1e9));
+    }
+}
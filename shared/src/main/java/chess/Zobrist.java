@@ -0,0 +1,34 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the key of every
+ * piece on its square, plus BLACK_TO_MOVE when it is black's turn, so a move only
+ * has to XOR out and in the few keys it changes.
+ * <p>
+ * The keys come from a fixed seed so that every JVM, client or server, computes
+ * the same key for the same position.
+ */
+final class Zobrist {
+
+    // [piece index][square]
+    static final long[][] PIECE_SQUARE = new long[Bitboards.PIECE_COUNT][64];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x240C4E55L);
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {}
+
+    static long sideToMove(ChessGame.TeamColor turn) {
+        return turn == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0L;
+    }
+}
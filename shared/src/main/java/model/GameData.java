@@ -2,4 +2,13 @@ package model;
 
 import chess.ChessGame;
 
-public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {}
\ No newline at end of file
+/**
+ * @param version how many times the stored game has been replaced; an update only
+ *                succeeds if it carries the version it read
+ */
+public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game, int version) {
+
+    public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+        this(gameID, whiteUsername, blackUsername, gameName, game, 0);
+    }
+}
@@ -0,0 +1,122 @@
+package webSocketMessages;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import webSocketMessages.serverMessages.*;
+import webSocketMessages.serverMessages.Error;
+import webSocketMessages.userCommands.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JSON encoding of the messages sent over the game WebSocket, shared by the client and
+ * the server. Commands and server messages are read as their base type; the commandType
+ * or serverMessageType field is read once and picks the subclass the rest of the message
+ * is bound to.
+ * <p>
+ * GSON is thread safe and should be used for every message instead of a new Gson each time.
+ */
+public final class WebSocketJson {
+
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(new SubtypeAdapterFactory<>(UserGameCommand.class, "commandType", Map.of(
+                    UserGameCommand.CommandType.JOIN_PLAYER.name(), JoinPlayer.class,
+                    UserGameCommand.CommandType.JOIN_OBSERVER.name(), JoinObserver.class,
+                    UserGameCommand.CommandType.MAKE_MOVE.name(), MakeMove.class,
+                    UserGameCommand.CommandType.LEAVE.name(), Leave.class,
+                    UserGameCommand.CommandType.RESIGN.name(), Resign.class,
+                    UserGameCommand.CommandType.RESYNC.name(), Resync.class)))
+            .registerTypeAdapterFactory(new SubtypeAdapterFactory<>(ServerMessage.class, "serverMessageType", Map.of(
+                    ServerMessage.ServerMessageType.LOAD_GAME.name(), LoadGame.class,
+                    ServerMessage.ServerMessageType.ERROR.name(), Error.class,
+                    ServerMessage.ServerMessageType.NOTIFICATION.name(), Notification.class,
+                    ServerMessage.ServerMessageType.MOVE_MADE.name(), MoveMade.class)))
+            .create();
+
+    private WebSocketJson() {}
+
+    /**
+     * @return the command as the subclass named by its commandType
+     * @throws JsonParseException if the message is not JSON or has an unknown commandType
+     */
+    public static UserGameCommand readCommand(String json) {
+        return GSON.fromJson(json, UserGameCommand.class);
+    }
+
+    /**
+     * @return the message as the subclass named by its serverMessageType
+     * @throws JsonParseException if the message is not JSON or has an unknown serverMessageType
+     */
+    public static ServerMessage readServerMessage(String json) {
+        return GSON.fromJson(json, ServerMessage.class);
+    }
+
+    public static String write(Object message) {
+        return GSON.toJson(message);
+    }
+
+    /*
+     * Only handles the base type itself. Subclasses are bound by the adapters Gson would
+     * otherwise use for them, looked up once, past this factory, when the base type's
+     * adapter is created.
+     */
+    private record SubtypeAdapterFactory<B>(Class<B> baseType, String typeField,
+                                            Map<String, Class<? extends B>> subtypes) implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != baseType) {
+                return null;
+            }
+            Map<Class<?>, TypeAdapter<?>> adapters = new HashMap<>();
+            for (Class<? extends B> subtype : subtypes.values()) {
+                adapters.put(subtype, gson.getDelegateAdapter(this, TypeToken.get(subtype)));
+            }
+            return (TypeAdapter<T>) new TypeAdapter<B>() {
+                @Override
+                public void write(JsonWriter out, B value) throws IOException {
+                    if (value == null) {
+                        out.nullValue();
+                        return;
+                    }
+                    writeAs(adapters.get(value.getClass()), out, value);
+                }
+
+                @Override
+                public B read(JsonReader in) {
+                    JsonElement tree = JsonParser.parseReader(in);
+                    if (tree.isJsonNull()) {
+                        return null;
+                    }
+                    JsonElement typeName = tree.isJsonObject() ? ((JsonObject) tree).get(typeField) : null;
+                    Class<? extends B> subtype = typeName != null && typeName.isJsonPrimitive()
+                            ? subtypes.get(typeName.getAsString()) : null;
+                    if (subtype == null) {
+                        throw new JsonParseException("Unknown %s: %s".formatted(typeField, typeName));
+                    }
+                    return subtype.cast(adapters.get(subtype).fromJsonTree(tree));
+                }
+
+                @SuppressWarnings("unchecked")
+                private <S> void writeAs(TypeAdapter<S> adapter, JsonWriter out, Object value) throws IOException {
+                    if (adapter == null) {
+                        throw new JsonParseException("Not a registered %s: %s".formatted(baseType.getSimpleName(), value.getClass()));
+                    }
+                    adapter.write(out, (S) value);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package webSocketMessages.serverMessages;
+
+import chess.ChessMove;
+
+/**
+ * Tells clients about a single move instead of sending them the whole game again.
+ * Clients apply the move to their own copy of the game and compare the resulting
+ * position hash against positionHash; if they differ, the client's copy is out of
+ * date and it should ask for the full game with a RESYNC command.
+ */
+public class MoveMade extends ServerMessage {
+
+    public enum Status {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
+    int gameID;
+    ChessMove move;
+    Status status;
+    long positionHash;
+
+    public MoveMade(int gameID, ChessMove move, Status status, long positionHash) {
+        super(ServerMessageType.MOVE_MADE);
+        this.gameID = gameID;
+        this.move = move;
+        this.status = status;
+        this.positionHash = positionHash;
+    }
+
+    public int getGameID() {
+        return gameID;
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getPositionHash() {
+        return positionHash;
+    }
+}
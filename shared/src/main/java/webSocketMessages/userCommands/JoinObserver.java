@@ -5,14 +5,28 @@ import chess.ChessGame;
 public class JoinObserver extends UserGameCommand {
 
     int gameID;
+    // Absent from clients that predate MOVE_MADE, which then keep getting a LOAD_GAME after every move
+    boolean moveDeltas;
 
     public JoinObserver(String authToken, int gameID) {
+        this(authToken, gameID, false);
+    }
+
+    /**
+     * @param moveDeltas whether moves in the game should be sent as MOVE_MADE rather than LOAD_GAME
+     */
+    public JoinObserver(String authToken, int gameID, boolean moveDeltas) {
         super(authToken);
         this.commandType = CommandType.JOIN_OBSERVER;
         this.gameID = gameID;
+        this.moveDeltas = moveDeltas;
     }
 
     public int getGameID() {
         return gameID;
     }
+
+    public boolean wantsMoveDeltas() {
+        return moveDeltas;
+    }
 }
\ No newline at end of file
@@ -7,12 +7,22 @@ public class JoinPlayer extends UserGameCommand {
 
     int gameID;
     ChessGame.TeamColor playerColor;
+    // Absent from clients that predate MOVE_MADE, which then keep getting a LOAD_GAME after every move
+    boolean moveDeltas;
 
     public JoinPlayer(String authToken, int gameID, ChessGame.TeamColor playerColor) {
+        this(authToken, gameID, playerColor, false);
+    }
+
+    /**
+     * @param moveDeltas whether moves in the game should be sent as MOVE_MADE rather than LOAD_GAME
+     */
+    public JoinPlayer(String authToken, int gameID, ChessGame.TeamColor playerColor, boolean moveDeltas) {
         super(authToken);
         this.commandType = CommandType.JOIN_PLAYER;
         this.gameID = gameID;
         this.playerColor = playerColor;
+        this.moveDeltas = moveDeltas;
     }
 
     public int getGameID() {
@@ -22,4 +32,8 @@ public class JoinPlayer extends UserGameCommand {
     public ChessGame.TeamColor getColor() {
         return playerColor;
     }
+
+    public boolean wantsMoveDeltas() {
+        return moveDeltas;
+    }
 }
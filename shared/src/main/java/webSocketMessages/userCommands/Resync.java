@@ -0,0 +1,16 @@
+package webSocketMessages.userCommands;
+
+public class Resync extends UserGameCommand {
+
+    int gameID;
+
+    public Resync(String authToken, int gameID) {
+        super(authToken);
+        this.commandType = CommandType.RESYNC;
+        this.gameID = gameID;
+    }
+
+    public int getGameID() {
+        return gameID;
+    }
+}
@@ -0,0 +1,61 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+public class ChessGameCodecTests {
+
+    @Test
+    @DisplayName("Starting Position Round Trip")
+    public void startingPosition() {
+        ChessGame game = Fen.parse(Fen.STARTING_POSITION);
+        byte[] encoded = ChessGameCodec.encode(game);
+
+        Assertions.assertEquals(26, encoded.length, "Starting position encoded to an unexpected size");
+        assertSameGame(game, ChessGameCodec.decode(encoded));
+    }
+
+    @Test
+    @DisplayName("Turn, Game Over and Odd Piece Count Round Trip")
+    public void flagsAndOddPieceCount() {
+        ChessGame game = Fen.parse(PerftTests.POSITION_3.replace(" w ", " b "));
+        game.setGameOver(true);
+
+        ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(game));
+
+        assertSameGame(game, decoded);
+        Assertions.assertTrue(decoded.getGameOver(), "Game over flag was lost");
+    }
+
+    @Test
+    @DisplayName("Rejects Bytes It Did Not Write")
+    public void rejectsGarbage() {
+        byte[] encoded = ChessGameCodec.encode(Fen.parse(Fen.STARTING_POSITION));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(new byte[]{'{', '}'}));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ChessGameCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+    }
+
+    @Test
+    @DisplayName("Moves Round Trip, With and Without Promotion")
+    public void moves() {
+        ChessMove quiet = new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null);
+        ChessMove corner = new ChessMove(new ChessPosition(8, 8), new ChessPosition(1, 1), null);
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT);
+
+        for (ChessMove move : new ChessMove[]{quiet, corner, promotion}) {
+            short encoded = ChessGameCodec.encodeMove(move);
+            Assertions.assertTrue(encoded >= 0, "Encoded move does not fit a signed 16-bit column");
+            Assertions.assertEquals(move, ChessGameCodec.decodeMove(encoded), "Decoded move differs from the encoded one");
+        }
+    }
+
+    private static void assertSameGame(ChessGame expected, ChessGame actual) {
+        Assertions.assertEquals(expected, actual, "Decoded game differs from the encoded one");
+        Assertions.assertEquals(expected.getPositionHash(), actual.getPositionHash(), "Decoded position hash differs");
+    }
+}
@@ -0,0 +1,51 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Each way a move can be rejected has its own message, whichever makeMove is used.
+ */
+public class InvalidMoveTests {
+    // White pawn on e7 ready to promote, white bishop on d2 pinned by the black queen on a5
+    static final String POSITION = "7k/4P3/8/q7/8/8/3B4/4K3 w - - 0 1";
+
+    @Test
+    @DisplayName("Wrong Turn")
+    public void wrongTurn() {
+        assertRejected("It is not BLACK's turn", move(8, 8, 7, 8, null));
+    }
+
+    @Test
+    @DisplayName("Missing Promotion Piece")
+    public void missingPromotion() {
+        assertRejected("That move needs a promotion piece", move(7, 5, 8, 5, null));
+    }
+
+    @Test
+    @DisplayName("Leaves King in Check")
+    public void pinnedPiece() {
+        assertRejected("That move would leave your king in check", move(2, 4, 3, 5, null));
+    }
+
+    @Test
+    @DisplayName("Not How the Piece Moves")
+    public void unreachableSquare() {
+        assertRejected("That piece can not move there", move(2, 4, 3, 4, null));
+    }
+
+    private static void assertRejected(String message, ChessMove move) {
+        ChessGame game = Fen.parse(POSITION);
+        InvalidMoveException checked = Assertions.assertThrows(InvalidMoveException.class, () -> game.makeMove(move));
+        Assertions.assertEquals(message, checked.getMessage(), "Wrong message from makeMove(move)");
+
+        InvalidMoveException precomputed = Assertions.assertThrows(InvalidMoveException.class,
+                () -> game.makeMove(move, game.allValidMoves()));
+        Assertions.assertEquals(message, precomputed.getMessage(), "Wrong message from makeMove(move, validMoves)");
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol, ChessPiece.PieceType promotion) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), promotion);
+    }
+}
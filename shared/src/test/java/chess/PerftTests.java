@@ -0,0 +1,149 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+/**
+ * Reference node counts from the standard perft positions. ChessGame has no castling or
+ * en passant, so each position is only searched to depths where neither can occur.
+ */
+public class PerftTests {
+    static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -";
+    static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    static final String POSITION_6 = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    @Test
+    @DisplayName("Starting Position")
+    public void startingPosition() {
+        ChessGame game = Fen.parse(Fen.STARTING_POSITION);
+        assertNodes(new long[]{20, 400, 8902, 197281}, game);
+    }
+
+    @Test
+    @DisplayName("Rook Endgame (Position 3)")
+    public void rookEndgame() {
+        assertNodes(new long[]{14, 191}, Fen.parse(POSITION_3));
+    }
+
+    @Test
+    @DisplayName("Promotions Out of Check (Position 4)")
+    public void promotionsOutOfCheck() {
+        assertNodes(new long[]{6}, Fen.parse(POSITION_4));
+    }
+
+    @Test
+    @DisplayName("Middlegame (Position 6)")
+    public void middlegame() {
+        assertNodes(new long[]{46, 2079, 89890}, Fen.parse(POSITION_6));
+    }
+
+    @Test
+    @DisplayName("Divide Sums to Perft and Leaves Game Unchanged")
+    public void divideMatchesPerft() {
+        ChessGame game = Fen.parse(POSITION_6);
+        ChessGame original = Fen.parse(POSITION_6);
+
+        Map<ChessMove, Long> counts = Perft.divide(game, 3);
+
+        Assertions.assertEquals(46, counts.size(), "Wrong number of first moves");
+        Assertions.assertEquals(89890, counts.values().stream().mapToLong(Long::longValue).sum(),
+                "Divide counts do not add up to the perft count");
+        Assertions.assertEquals(original, game, "Perft did not restore the game");
+        Assertions.assertEquals(original.getPositionHash(), game.getPositionHash(), "Perft did not restore the position hash");
+    }
+
+    @Test
+    @DisplayName("Transpositions Share a Position Hash")
+    public void transpositionHash() throws InvalidMoveException {
+        ChessGame knightsFirst = Fen.parse(Fen.STARTING_POSITION);
+        knightsFirst.makeMove(move(1, 7, 3, 6));
+        knightsFirst.makeMove(move(8, 7, 6, 6));
+        knightsFirst.makeMove(move(1, 2, 3, 3));
+
+        ChessGame otherOrder = Fen.parse(Fen.STARTING_POSITION);
+        otherOrder.makeMove(move(1, 2, 3, 3));
+        otherOrder.makeMove(move(8, 7, 6, 6));
+        otherOrder.makeMove(move(1, 7, 3, 6));
+
+        Assertions.assertEquals(knightsFirst.getPositionHash(), otherOrder.getPositionHash(),
+                "Same position reached in a different order hashed differently");
+        Assertions.assertEquals(Fen.parse(Fen.toFen(knightsFirst)).getPositionHash(), knightsFirst.getPositionHash(),
+                "Incrementally updated hash does not match the hash of a freshly loaded position");
+        Assertions.assertNotEquals(Fen.parse(Fen.STARTING_POSITION).getPositionHash(),
+                Fen.parse(Fen.STARTING_POSITION.replace(" w ", " b ")).getPositionHash(),
+                "Side to move is not part of the position hash");
+    }
+
+    @Test
+    @DisplayName("Perft Agrees With ChessGame.validMoves")
+    public void agreesWithValidMoves() {
+        ChessGame game = Fen.parse(POSITION_6);
+        Assertions.assertEquals(Perft.perft(game, 2), countWithValidMoves(game, 2),
+                "Perft and ChessGame.validMoves disagree");
+    }
+
+    @Test
+    @DisplayName("Divide Rejects Depths Below 1")
+    public void divideRejectsZeroDepth() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Perft.divide(Fen.parse(POSITION_6), 0));
+    }
+
+    @Test
+    @DisplayName("FEN Ranks Must Cover 8 Squares")
+    public void fenRankWidth() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Fen.parse(Fen.STARTING_POSITION.replace("/8/8/8/8/", "/9/8/8/8/")), "Too many empty squares");
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Fen.parse(Fen.STARTING_POSITION.replace("/8/8/8/8/", "/7/8/8/8/")), "Too few squares");
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Fen.parse(Fen.STARTING_POSITION.replace("/8/8/8/8/", "/4p4/8/8/8/")), "Piece past the last file");
+    }
+
+    @Test
+    @DisplayName("FEN Round Trip")
+    public void fenRoundTrip() {
+        Assertions.assertEquals(POSITION_6.split(" ")[0] + " w - - 0 1", Fen.toFen(Fen.parse(POSITION_6)));
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    private static void assertNodes(long[] expected, ChessGame game) {
+        for (int depth = 1; depth <= expected.length; depth++) {
+            Assertions.assertEquals(expected[depth - 1], Perft.perft(game, depth), "Wrong node count at depth " + depth);
+        }
+    }
+
+    // Walks the tree through the public ChessGame API only, copying the game for every move
+    private static long countWithValidMoves(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long nodes = 0;
+        for (int row = 1; row < 9; row++) {
+            for (int col = 1; col < 9; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = game.getBoard().getPiece(position);
+                if (piece == null || piece.getTeamColor() != game.getTeamTurn()) {
+                    continue;
+                }
+                for (ChessMove move : game.validMoves(position)) {
+                    ChessGame next = new ChessGame();
+                    next.setBoard(game.getBoard());
+                    next.setTeamTurn(game.getTeamTurn());
+                    try {
+                        next.makeMove(move);
+                    } catch (InvalidMoveException e) {
+                        Assertions.fail("validMoves returned a move makeMove rejected: " + move);
+                    }
+                    nodes += countWithValidMoves(next, depth - 1);
+                }
+            }
+        }
+        return nodes;
+    }
+}